@@ -0,0 +1,113 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.*;
+
+/**
+ * Deterministic in-memory data for the benchmarks, shaped like the records the parsers get from the YAML files
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class BenchmarkData {
+	private static final String[] ATTRIBUTES = {"Obrana", "Vitalita", "Síla", "Přesnost", "Vyhýbání", "Poškození",
+			"Inteligence", "Šance na kritický zásah", "Kritický útok", "Víra", "Regenerace many"};
+	private static final String[] FAMILIES = {"helm", "boots", "chest", "ring", "sword", "off", "bow", "neck",
+			"legs", "hul"};
+	private static final String[] ENCHANTMENTS = {"sharpness", "protection", "unbreaking", "fire_aspect"};
+	private static final long SEED = 42;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Logs warnings and errors only. The parsers log every filtered item and every missing equipment,
+	 * the benchmarks would measure the console otherwise.
+	 */
+	public static void quietLogging() {
+		Configurator.setRootLevel(Level.WARN);
+	}
+
+	/**
+	 * @param items    the amount of items
+	 * @param maxLevel the highest level requirement
+	 * @return the lore of the items, key = item ID, value = lore lines
+	 */
+	public static Map<String, List<String>> lore(final int items, final int maxLevel) {
+		final Random random = new Random(SEED);
+		final Map<String, List<String>> lore = new LinkedHashMap<>();
+		for (int i = 0; i < items; i++) {
+			final List<String> lines = new ArrayList<>();
+			lines.add("&7Potřebný Lvl: " + (1 + random.nextInt(maxLevel)));
+			lines.add("");
+			for (int a = random.nextInt(5); a > 0; a--) {
+				final String attribute = ATTRIBUTES[random.nextInt(ATTRIBUTES.length)];
+				final int min = 1 + random.nextInt(50);
+				switch (random.nextInt(4)) {
+					case 0:
+						lines.add(String.format("&a+%d%% %s", min, attribute));
+						break;
+					case 1:
+						lines.add(String.format("&a+%d-%d %s", min, min + random.nextInt(20), attribute));
+						break;
+					case 2:
+						lines.add(String.format("&6%s: %d-%d%%", attribute, min, min + 5));
+						break;
+					default:
+						lines.add(String.format("&6%s: %d", attribute, min));
+						break;
+				}
+			}
+			lines.add("&8Legendary item");
+			lore.put(FAMILIES[random.nextInt(FAMILIES.length)] + "_" + i, lines);
+		}
+		return lore;
+	}
+
+	/**
+	 * @param items the amount of mob items
+	 * @return the mob item records, key = equipment ID, value = the Id and Enchantments keys
+	 */
+	public static Map<String, Map<String, Object>> mobItems(final int items) {
+		final Random random = new Random(SEED);
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		for (int i = 0; i < items; i++) {
+			final List<String> enchantments = new ArrayList<>();
+			for (int e = random.nextInt(4); e > 0; e--) {
+				enchantments.add(ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)] + ":" + (1 + random.nextInt(5)));
+			}
+			final Map<String, Object> record = new LinkedHashMap<>();
+			record.put("Id", 256 + random.nextInt(100));
+			record.put("Enchantments", enchantments);
+			records.put("eq" + i, record);
+		}
+		return records;
+	}
+
+	/**
+	 * @param mobs     the amount of mobs
+	 * @param items    the amount of mob items, see {@link #mobItems(int)}
+	 * @param maxLevel the highest mob level
+	 * @return the mob records, key = mob ID, value = the Health, Damage, Display and Equipment keys
+	 */
+	public static Map<String, Map<String, Object>> mobs(final int mobs, final int items, final int maxLevel) {
+		final Random random = new Random(SEED);
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		for (int i = 0; i < mobs; i++) {
+			final List<String> equipment = new ArrayList<>();
+			for (int slot = random.nextInt(5); slot > 0; slot--) {
+				equipment.add("eq" + random.nextInt(items) + ":" + slot);
+			}
+			final Map<String, Object> record = new LinkedHashMap<>();
+			record.put("Health", 10 + random.nextInt(500));
+			record.put("Damage", 1 + random.nextInt(50));
+			record.put("Display", String.format("&8[&4Lv. %d&8]&c Mob %d", 1 + random.nextInt(maxLevel), i));
+			record.put("Equipment", equipment);
+			records.put("mob" + i, record);
+		}
+		return records;
+	}
+}
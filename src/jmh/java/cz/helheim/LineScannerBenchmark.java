@@ -0,0 +1,49 @@
+package cz.helheim;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lore line parsing, see {@link LineScanner#scanAttribute(String)}
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LineScannerBenchmark {
+	@Param({"1000", "10000", "100000"})
+	private int items;
+
+	private String[] lines;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.quietLogging();
+		final List<String> lines = new ArrayList<>();
+		for (List<String> lore : BenchmarkData.lore(items, 100).values()) {
+			lines.addAll(lore);
+		}
+		this.lines = lines.toArray(new String[0]);
+	}
+
+	@Benchmark
+	public void scanAttributes(final Blackhole bh) {
+		final LineScanner scanner = new LineScanner();
+		for (String line : lines) {
+			if (scanner.scanAttribute(line)) {
+				bh.consume(scanner.getName());
+				bh.consume(scanner.getMin() + scanner.getMax());
+			}
+		}
+	}
+}
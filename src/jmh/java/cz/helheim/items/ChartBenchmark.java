@@ -0,0 +1,59 @@
+package cz.helheim.items;
+
+import cz.helheim.BenchmarkData;
+import cz.helheim.ChartWriter;
+import cz.helheim.LevelAggregate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SVG export of the item chart, the size of the chart is given by the amount of levels.
+ * Every invocation renders the chart, the unchanged data is not skipped.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChartBenchmark {
+	@Param({"60", "600", "6000"})
+	private int levels;
+
+	// 0 = all points
+	@Param({"0", "200"})
+	private int maxPoints;
+
+	@Param({"false", "true"})
+	private boolean compress;
+
+	private LevelAggregate aggregate;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.quietLogging();
+		ChartWriter.configure(maxPoints, compress, false);
+		final Random random = new Random(42);
+		aggregate = new LevelAggregate(ItemTable.RANKS);
+		for (int lvl = 1; lvl <= levels; lvl++) {
+			for (int i = 0; i < 10; i++) {
+				final double avg = lvl * 10 + random.nextInt(100);
+				aggregate.add(ItemTable.MIN_RANK, lvl, avg * 0.8);
+				aggregate.add(ItemTable.AVG_RANK, lvl, avg);
+				aggregate.add(ItemTable.MAX_RANK, lvl, avg * 1.2);
+			}
+		}
+	}
+
+	@Benchmark
+	public String dumpChart() throws IOException {
+		return ChartWriter.write("benchmark.svg", ItemStatistics.createChart(aggregate));
+	}
+}
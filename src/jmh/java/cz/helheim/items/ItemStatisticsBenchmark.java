@@ -0,0 +1,97 @@
+package cz.helheim.items;
+
+import cz.helheim.BenchmarkData;
+import cz.helheim.LevelAggregate;
+import cz.helheim.LevelIndex;
+import cz.helheim.WeightDictionary;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item parsing (lore scanning, blacklist, weight interning), ranking, the chart aggregation, the index queries and
+ * the ranking by many weight profiles
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemStatisticsBenchmark {
+	@Param({"1000", "10000", "100000"})
+	private int items;
+
+	private Map<String, List<String>> lore;
+	private Blacklist blacklist;
+	private ItemTable table;
+	private LevelAggregate levels;
+	private LevelIndex<Item> index;
+	private WeightProfiles profiles;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.quietLogging();
+		lore = BenchmarkData.lore(items, 100);
+		blacklist = new Blacklist(List.of("off", "Křídla", "bow", "ring", "neck", "frag", "exp", "hul"),
+				Collections.emptyList(), Collections.emptyList());
+		table = ItemStatistics.parseItems(lore, blacklist, new WeightDictionary(Collections.emptyMap(), 1d));
+		levels = rank();
+		index = table.createIndex();
+
+		final Random random = new Random(42);
+		final Map<String, Map<String, Double>> weightings = new TreeMap<>();
+		for (int p = 0; p < 10; p++) {
+			final Map<String, Double> weighting = new HashMap<>();
+			for (int id = 0; id < table.getWeights().size(); id++) {
+				weighting.put(table.getWeights().getKey(id), random.nextDouble() * 5);
+			}
+			weightings.put("profile" + p, weighting);
+		}
+		profiles = new WeightProfiles(table, weightings);
+	}
+
+	@Benchmark
+	public ItemTable parseItems() {
+		return ItemStatistics.parseItems(lore, blacklist, new WeightDictionary(Collections.emptyMap(), 1d));
+	}
+
+	@Benchmark
+	public LevelAggregate rank() {
+		final LevelAggregate levels = new LevelAggregate(ItemTable.RANKS);
+		table.rank(levels);
+		return levels;
+	}
+
+	@Benchmark
+	public XYSeriesCollection createDataset() {
+		return ItemStatistics.createDataset(levels);
+	}
+
+	@Benchmark
+	public LevelIndex<Item> createIndex() {
+		return table.createIndex();
+	}
+
+	@Benchmark
+	public int[] queryLevelsAndAttribute() {
+		return index.query().levels(20, 30).with("Vyhýbání").orderBy(LevelIndex.Order.SCORE).indices();
+	}
+
+	@Benchmark
+	public int[] queryBestTen() {
+		return index.query().orderBy(LevelIndex.Order.SCORE).limit(10).indices();
+	}
+
+	@Benchmark
+	public WeightProfiles evaluateTenProfiles() {
+		profiles.evaluate();
+		return profiles;
+	}
+}
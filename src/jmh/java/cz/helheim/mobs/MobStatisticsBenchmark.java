@@ -0,0 +1,57 @@
+package cz.helheim.mobs;
+
+import cz.helheim.BenchmarkData;
+import cz.helheim.WeightDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mob parsing with the equipment resolution and the mob weights
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MobStatisticsBenchmark {
+	private static final int ITEMS = 500;
+
+	@Param({"1000", "10000", "100000"})
+	private int mobs;
+
+	private Map<String, Map<String, Object>> records;
+	private EquipmentIndex equipment;
+	private List<Mob> parsed;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.quietLogging();
+		equipment = MobStatistics.parseItemFiles(BenchmarkData.mobItems(ITEMS),
+				new WeightDictionary(Collections.emptyMap(), 1d));
+		records = BenchmarkData.mobs(mobs, ITEMS, 60);
+		parsed = parseMobFiles();
+	}
+
+	@Benchmark
+	public List<Mob> parseMobFiles() {
+		return MobStatistics.parseMobFiles(records, equipment);
+	}
+
+	@Benchmark
+	public double mobWeight() {
+		double weight = 0;
+		for (Mob m : parsed) {
+			weight += m.getWeight();
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,149 @@
+package cz.helheim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a text file that was read whole into a heap buffer through a file channel. The bytes are decoded straight
+ * into the char array of the caller (the buffer of the YAML parser), there is no intermediate char buffer.
+ * <p>
+ * The file is not memory-mapped, the channel is closed before the reader is returned, so nothing keeps the file
+ * open and it can be replaced or deleted right away, e.g. by the watcher or the parse cache, also on Windows.
+ * The encoding is UTF-8 unless there is a UTF-16 byte order mark, the same as SnakeYAML's
+ * {@link org.yaml.snakeyaml.reader.UnicodeReader}. Malformed input is reported.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ChannelFileReader extends Reader {
+	private static final int NONE = -1;
+
+	private final ByteBuffer in;
+	private final CharsetDecoder decoder;
+	// the low surrogate of a pair that did not fit into the caller's array
+	private int pending = NONE;
+	private boolean flushed = false;
+
+	private ChannelFileReader(final ByteBuffer in) {
+		this.in = in;
+		this.decoder = skipByteOrderMark(in).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+	}
+
+	/**
+	 * Opens the file, the file handle is closed before this returns
+	 *
+	 * @param f the file
+	 * @return the reader
+	 * @throws IOException if the file could not be read
+	 */
+	public static ChannelFileReader open(final File f) throws IOException {
+		return open(read(f));
+	}
+
+	/**
+	 * Opens the bytes of a file, see {@link #read(File)}, so that the same bytes can also be hashed
+	 *
+	 * @param bytes the bytes of the file, read from their position on
+	 * @return the reader
+	 */
+	public static ChannelFileReader open(final ByteBuffer bytes) {
+		return new ChannelFileReader(bytes);
+	}
+
+	/**
+	 * Reads the whole file into a heap buffer, the file handle is closed before this returns
+	 *
+	 * @param f the file
+	 * @return the bytes of the file
+	 * @throws IOException if the file could not be read or is larger than 2 GiB
+	 */
+	public static ByteBuffer read(final File f) throws IOException {
+		try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			final long size = ch.size();
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IOException(String.format("The file %s is too large (%d bytes)", f, size));
+			}
+
+			final ByteBuffer buf = ByteBuffer.allocate((int) size);
+			while (buf.hasRemaining() && ch.read(buf) != -1) {
+				// read it all
+			}
+			buf.flip();
+			return buf;
+		}
+	}
+
+	/**
+	 * @return the charset, UTF-16 if there is its byte order mark, UTF-8 otherwise
+	 */
+	private static Charset skipByteOrderMark(final ByteBuffer in) {
+		final int b0 = in.remaining() > 0 ? in.get(0) & 0xff : NONE;
+		final int b1 = in.remaining() > 1 ? in.get(1) & 0xff : NONE;
+		final int b2 = in.remaining() > 2 ? in.get(2) & 0xff : NONE;
+		if (b0 == 0xef && b1 == 0xbb && b2 == 0xbf) {
+			in.position(3);
+			return StandardCharsets.UTF_8;
+		}
+		if (b0 == 0xfe && b1 == 0xff || b0 == 0xff && b1 == 0xfe) {
+			in.position(2);
+			return b0 == 0xfe ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE;
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (pending != NONE) {
+			cbuf[off] = (char) pending;
+			pending = NONE;
+			return 1;
+		}
+		if (flushed) {
+			return -1;
+		}
+
+		final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		CoderResult result = decoder.decode(in, out, true);
+		if (result.isUnderflow()) {
+			result = decoder.flush(out);
+			flushed = result.isUnderflow();
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		if (out.position() == off && !flushed) {
+			// a surrogate pair does not fit into a single char
+			final CharBuffer pair = CharBuffer.allocate(2);
+			result = decoder.decode(in, pair, true);
+			if (result.isError()) {
+				result.throwException();
+			}
+			cbuf[off] = pair.get(0);
+			pending = pair.get(1);
+			return 1;
+		}
+		final int read = out.position() - off;
+		return read == 0 && flushed ? -1 : read;
+	}
+
+	@Override
+	public void close() {
+		// the file channel is already closed
+	}
+}
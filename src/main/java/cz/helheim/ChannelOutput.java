@@ -0,0 +1,124 @@
+package cz.helheim;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A buffered output to a file channel. Values are put into a buffer that is written to the channel whenever it is
+ * full, numbers are big-endian.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ChannelOutput implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Creates or truncates the file
+	 *
+	 * @param f the file
+	 * @throws IOException if the file could not be opened
+	 */
+	public ChannelOutput(final File f) throws IOException {
+		this.channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	private void ensure(final int bytes) throws IOException {
+		if (buf.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	public void putByte(final byte b) throws IOException {
+		ensure(Byte.BYTES);
+		buf.put(b);
+	}
+
+	public void putInt(final int i) throws IOException {
+		ensure(Integer.BYTES);
+		buf.putInt(i);
+	}
+
+	public void putLong(final long l) throws IOException {
+		ensure(Long.BYTES);
+		buf.putLong(l);
+	}
+
+	public void putDouble(final double d) throws IOException {
+		ensure(Double.BYTES);
+		buf.putDouble(d);
+	}
+
+	/**
+	 * Puts the bytes, the bytes larger than the buffer are written to the channel directly
+	 *
+	 * @param bytes the bytes
+	 * @throws IOException if the buffer could not be flushed
+	 */
+	public void putBytes(final byte[] bytes) throws IOException {
+		if (bytes.length > buf.capacity()) {
+			flush();
+			final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+			while (wrapped.hasRemaining()) {
+				channel.write(wrapped);
+			}
+			return;
+		}
+		ensure(bytes.length);
+		buf.put(bytes);
+	}
+
+	/**
+	 * Puts the string in UTF-8, prefixed with the length in bytes
+	 *
+	 * @param s the string
+	 * @throws IOException if the buffer could not be flushed
+	 */
+	public void putString(final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		putBytes(bytes);
+	}
+
+	/**
+	 * Puts the text in UTF-8 as is
+	 *
+	 * @param text the text
+	 * @throws IOException if the buffer could not be flushed
+	 */
+	public void putText(final CharSequence text) throws IOException {
+		putBytes(text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the buffer to the channel
+	 *
+	 * @throws IOException if the buffer could not be written
+	 */
+	public void flush() throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
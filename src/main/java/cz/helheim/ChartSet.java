@@ -0,0 +1,189 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jfree.chart.JFreeChart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Many charts rendered concurrently, e.g. a chart per item attribute, and an HTML index page linking them. Each chart
+ * is created and rendered by a single worker of a bounded pool, so a chart and its {@code SVGGraphics2D} never leave
+ * the worker, see {@link ChartWriter}. The pool is sized to the processors, JFreeChart rendering is CPU bound.
+ * <p>
+ * The charts are grouped in sections, in the order they are added, a chart belongs to the section started last,
+ * see {@link #section(String)}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ChartSet {
+	private static final Logger L = LogManager.getLogger(ChartSet.class);
+	private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	private final String title;
+	private final Map<String, List<Chart>> sections = new LinkedHashMap<>();
+	private final Set<String> fileNames = new HashSet<>();
+	private List<Chart> section;
+	private int size = 0;
+
+	/**
+	 * @param title the title of the index page
+	 */
+	public ChartSet(final String title) {
+		this.title = title;
+		section(title);
+	}
+
+	/**
+	 * Starts a new section of the index page, the charts added next belong to it
+	 *
+	 * @param heading the heading of the section
+	 */
+	public void section(final String heading) {
+		section = sections.computeIfAbsent(heading, h -> new ArrayList<>());
+	}
+
+	/**
+	 * Adds a chart with a file name derived from the name, e.g. "item-attr-" and "Vyhýbání" gives
+	 * "item-attr-vyhybani.svg". Names that differ only in case, accents or punctuation are numbered.
+	 *
+	 * @param prefix the file name prefix
+	 * @param name   the name of the chart in the index page
+	 * @param chart  creates the chart on the worker, {@code null} if there is nothing to chart
+	 */
+	public void add(final String prefix, final String name, final Supplier<JFreeChart> chart) {
+		final String base = prefix + slug(name);
+		String fileName = base + ".svg";
+		for (int i = 2; !fileNames.add(fileName); i++) {
+			fileName = base + "-" + i + ".svg";
+		}
+		section.add(new Chart(fileName, name, chart));
+		size++;
+	}
+
+	/**
+	 * @return the amount of charts
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Renders the charts concurrently into the output directory and writes the index page linking the rendered
+	 * charts, a chart with nothing to chart is left out
+	 *
+	 * @param indexFile the file name of the index page
+	 * @throws IOException if a chart or the index page could not be written, the other charts are still rendered
+	 */
+	public void write(final String indexFile) throws IOException {
+		final long start = System.nanoTime();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(THREADS, Math.max(1, size)),
+				new ChartThreadFactory());
+		final List<CompletableFuture<Void>> rendered = new ArrayList<>(size);
+		try {
+			for (List<Chart> charts : sections.values()) {
+				for (Chart c : charts) {
+					rendered.add(Pipeline.run(c::render, executor));
+				}
+			}
+			Pipeline.join(rendered);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Files.write(new File(Main.getOutDir(), indexFile).toPath(), index().getBytes(StandardCharsets.UTF_8));
+		L.info(String.format("Rendered %d chart(s) of %s in %d ms", size, indexFile,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+	}
+
+	private String index() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>").append(escape(title))
+				.append("</title>\n</head>\n<body>\n<h1>").append(escape(title)).append("</h1>\n");
+		for (Map.Entry<String, List<Chart>> e : sections.entrySet()) {
+			final StringBuilder links = new StringBuilder();
+			for (Chart c : e.getValue()) {
+				if (c.written != null) {
+					links.append("<li><a href=\"").append(escape(c.written)).append("\">").append(escape(c.name))
+							.append("</a></li>\n");
+				}
+			}
+			if (links.length() == 0) {
+				continue;
+			}
+			if (!e.getKey().equals(title)) {
+				sb.append("<h2>").append(escape(e.getKey())).append("</h2>\n");
+			}
+			sb.append("<ul>\n").append(links).append("</ul>\n");
+		}
+		return sb.append("</body>\n</html>\n").toString();
+	}
+
+	/**
+	 * @param name the name
+	 * @return the name in lower case ASCII letters and digits, the accents are removed and the rest is replaced by '-'
+	 */
+	static String slug(final String name) {
+		final String ascii = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+		final String slug = ascii.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-")
+				.replaceAll("^-+|-+$", "");
+		return slug.isEmpty() ? "chart" : slug;
+	}
+
+	private static String escape(final String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	/**
+	 * A chart of the set, written by the worker that rendered it
+	 */
+	private static final class Chart {
+		private final String fileName;
+		private final String name;
+		private final Supplier<JFreeChart> chart;
+		// the name of the written file (.svgz if compressed), null if there was nothing to chart, read after the
+		// workers were joined
+		private String written;
+
+		private Chart(final String fileName, final String name, final Supplier<JFreeChart> chart) {
+			this.fileName = fileName;
+			this.name = name;
+			this.chart = chart;
+		}
+
+		private void render() throws IOException {
+			final JFreeChart chart = this.chart.get();
+			if (chart != null) {
+				written = ChartWriter.write(fileName, chart);
+			}
+		}
+	}
+
+	/**
+	 * Daemon threads, the same as the pipeline threads
+	 */
+	private static final class ChartThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "chart-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.labels.StandardXYItemLabelGenerator;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.svg.SVGGraphics2D;
+import org.jfree.svg.SVGUtils;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Exports charts into .svg (or gzipped .svgz) files. Series with more points than the point budget are downsampled
+ * with Largest-Triangle-Three-Buckets, which keeps the peaks and the shape of the line. The data of every chart is
+ * hashed and the chart is not rendered again if the hash matches the previous render of the file.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ChartWriter {
+	private static final Logger L = LogManager.getLogger(ChartWriter.class);
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+	// the smallest budget LTTB makes sense for, the first and the last point plus one bucket
+	private static final int MIN_POINTS = 3;
+	private static final String HASH_SUFFIX = ".sha256";
+
+	// 0 = no downsampling
+	private static volatile int maxPoints = 0;
+	private static volatile boolean compress = false;
+	private static volatile boolean skipUnchanged = true;
+
+	private ChartWriter() {
+	}
+
+	/**
+	 * Sets up the chart export
+	 *
+	 * @param maxPoints     the most points a series is rendered with, 0 renders all points
+	 * @param compress      whether to write gzipped .svgz files instead of .svg files
+	 * @param skipUnchanged whether to skip the charts whose data did not change since their last render
+	 */
+	public static void configure(final int maxPoints, final boolean compress, final boolean skipUnchanged) {
+		if (maxPoints != 0 && maxPoints < MIN_POINTS) {
+			throw new IllegalArgumentException(String.format("The point budget must be 0 or at least %d",
+					MIN_POINTS));
+		}
+		ChartWriter.maxPoints = maxPoints;
+		ChartWriter.compress = compress;
+		ChartWriter.skipUnchanged = skipUnchanged;
+	}
+
+	/**
+	 * Dumps a chart into a file in .svg format, or .svgz if compressed
+	 *
+	 * @param fileName the file name, the extension is replaced by .svgz if compressed
+	 * @param chart    the chart
+	 * @return the name of the written file
+	 * @throws IOException if the chart could not be exported
+	 */
+	public static String write(String fileName, final JFreeChart chart) throws IOException {
+		final Events.Chart event = new Events.Chart();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.CHART, event);
+		final boolean compress = ChartWriter.compress;
+		if (compress) {
+			fileName = fileName.replaceFirst("\\.svg$", "") + ".svgz";
+		}
+		final XYPlot plot = chart.getXYPlot();
+		downsample(plot);
+
+		final File file = new File(Main.getOutDir(), fileName);
+		final File hashFile = new File(Main.getCacheDir(), fileName + HASH_SUFFIX);
+		final String hash = hash(chart);
+		if (skipUnchanged && file.isFile() && hashFile.isFile()
+				&& hash.equals(new String(Files.readAllBytes(hashFile.toPath()), StandardCharsets.US_ASCII))) {
+			L.info(String.format("The data of %s did not change, skipping the render", fileName));
+			end(span, event, fileName, plot.getDataset(), true);
+			return fileName;
+		}
+
+		SVGUtils.writeToSVG(file, svg(chart), compress);
+
+		// written after the chart, a failed render is rendered again
+		Files.write(hashFile.toPath(), hash.getBytes(StandardCharsets.US_ASCII));
+		end(span, event, fileName, plot.getDataset(), false);
+		return fileName;
+	}
+
+	/**
+	 * Renders a chart into an SVG document in memory, downsampled the same way as {@link #write(String, JFreeChart)}
+	 *
+	 * @param chart the chart
+	 * @return the SVG document
+	 */
+	public static String render(final JFreeChart chart) {
+		downsample(chart.getXYPlot());
+		return svg(chart);
+	}
+
+	private static void downsample(final XYPlot plot) {
+		if (maxPoints > 0) {
+			plot.setDataset(downsample(plot.getDataset(), maxPoints));
+		}
+	}
+
+	private static String svg(final JFreeChart chart) {
+		XYLineAndShapeRenderer renderer = (XYLineAndShapeRenderer) chart.getXYPlot().getRenderer();
+		renderer.setDefaultItemLabelsVisible(true);
+		renderer.setDefaultItemLabelGenerator(new StandardXYItemLabelGenerator("{2}"));
+
+		SVGGraphics2D g2 = new SVGGraphics2D(WIDTH, HEIGHT);
+		Rectangle r = new Rectangle(0, 0, WIDTH, HEIGHT);
+		chart.draw(g2, r);
+		return g2.getSVGElement();
+	}
+
+	private static void end(final RunReport.Span span, final Events.Chart event, final String fileName,
+	                        final XYDataset dataset, final boolean skipped) {
+		int points = 0;
+		for (int s = 0; s < dataset.getSeriesCount(); s++) {
+			points += dataset.getItemCount(s);
+		}
+		span.end(points, 0);
+		event.file = fileName;
+		event.points = points;
+		event.skipped = skipped;
+		event.commit();
+	}
+
+	/**
+	 * Downsamples the series with more points than the budget, see {@link #downsample(XYSeries, int)}
+	 *
+	 * @param dataset   the dataset
+	 * @param maxPoints the point budget of a series
+	 * @return the downsampled dataset
+	 */
+	static XYSeriesCollection downsample(final XYDataset dataset, final int maxPoints) {
+		final XYSeriesCollection downsampled = new XYSeriesCollection();
+		for (int s = 0; s < dataset.getSeriesCount(); s++) {
+			final XYSeries series = new XYSeries(dataset.getSeriesKey(s));
+			for (int i = 0; i < dataset.getItemCount(s); i++) {
+				series.add(dataset.getXValue(s, i), dataset.getYValue(s, i));
+			}
+			downsampled.addSeries(downsample(series, maxPoints));
+		}
+		return downsampled;
+	}
+
+	/**
+	 * Downsamples the series with Largest-Triangle-Three-Buckets. The first and the last point are kept, the points
+	 * in between are split into buckets and the point of each bucket that forms the largest triangle with the point
+	 * kept from the previous bucket and the average of the next bucket is kept.
+	 *
+	 * @param series    the series sorted by x
+	 * @param maxPoints the point budget
+	 * @return the series itself if it fits the budget, a downsampled copy otherwise
+	 */
+	static XYSeries downsample(final XYSeries series, final int maxPoints) {
+		final int n = series.getItemCount();
+		if (n <= maxPoints || maxPoints < MIN_POINTS) {
+			return series;
+		}
+
+		final XYSeries downsampled = new XYSeries(series.getKey());
+		final double bucketSize = (double) (n - 2) / (maxPoints - 2);
+		int kept = 0;
+		downsampled.add(series.getX(0), series.getY(0));
+		for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+			final int from = (int) (bucket * bucketSize) + 1;
+			final int to = (int) ((bucket + 1) * bucketSize) + 1;
+
+			// the average of the next bucket, the last point for the last bucket
+			final int nextFrom = to;
+			final int nextTo = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+			double avgX = 0;
+			double avgY = 0;
+			for (int i = nextFrom; i < nextTo; i++) {
+				avgX += series.getX(i).doubleValue();
+				avgY += series.getY(i).doubleValue();
+			}
+			avgX /= nextTo - nextFrom;
+			avgY /= nextTo - nextFrom;
+
+			final double keptX = series.getX(kept).doubleValue();
+			final double keptY = series.getY(kept).doubleValue();
+			double maxArea = -1;
+			int max = from;
+			for (int i = from; i < to; i++) {
+				// twice the area, only compared
+				final double area = Math.abs((keptX - avgX) * (series.getY(i).doubleValue() - keptY)
+						- (keptX - series.getX(i).doubleValue()) * (avgY - keptY));
+				if (area > maxArea) {
+					maxArea = area;
+					max = i;
+				}
+			}
+			downsampled.add(series.getX(max), series.getY(max));
+			kept = max;
+		}
+		downsampled.add(series.getX(n - 1), series.getY(n - 1));
+		return downsampled;
+	}
+
+	/**
+	 * @return the hash of everything the render depends on, the titles, the size and the data
+	 */
+	private static String hash(final JFreeChart chart) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+
+		final XYPlot plot = chart.getXYPlot();
+		final StringBuilder sb = new StringBuilder();
+		sb.append(WIDTH).append('x').append(HEIGHT).append('\n');
+		sb.append(chart.getTitle() == null ? "" : chart.getTitle().getText()).append('\n');
+		sb.append(plot.getDomainAxis().getLabel()).append('\n');
+		sb.append(plot.getRangeAxis().getLabel()).append('\n');
+		final XYDataset dataset = plot.getDataset();
+		for (int s = 0; s < dataset.getSeriesCount(); s++) {
+			sb.append(dataset.getSeriesKey(s)).append('\n');
+			for (int i = 0; i < dataset.getItemCount(s); i++) {
+				// the exact bits, the labels show the values
+				sb.append(Double.doubleToLongBits(dataset.getXValue(s, i))).append(' ')
+						.append(Double.doubleToLongBits(dataset.getYValue(s, i))).append('\n');
+			}
+		}
+
+		final StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8))) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+}
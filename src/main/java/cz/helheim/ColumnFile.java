@@ -0,0 +1,138 @@
+package cz.helheim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A binary columnar file. The file consists of named columns, each column holds values of a single type and has
+ * its own amount of values, so a file may hold more tables, or list values as an offset column and value columns.
+ * Strings are stored once in a dictionary and the string columns hold their indices.
+ * <p>
+ * All numbers are big-endian, a string is an int length followed by the UTF-8 bytes. The layout is
+ * <pre>
+ * int    magic, 0x4449434F (DICO)
+ * int    version
+ * string name
+ * int    dictionary size, followed by the strings
+ * int    column count, followed by the columns:
+ *   string name
+ *   byte   type, 1 = int, 2 = double, 3 = string (int dictionary index)
+ *   int    value count
+ *   long   data length in bytes, followed by the data
+ * </pre>
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ColumnFile {
+	private static final int MAGIC = 0x4449434F; // DICO
+	private static final int VERSION = 1;
+	private static final byte INT = 1, DOUBLE = 2, STRING = 3;
+
+	private final String name;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final List<Column> columns = new ArrayList<>();
+
+	/**
+	 * @param name the name of the data
+	 */
+	public ColumnFile(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Adds an int column
+	 *
+	 * @param name   the column name
+	 * @param values the values
+	 * @param count  the amount of values
+	 */
+	public void addInts(final String name, final int[] values, final int count) {
+		columns.add(new Column(name, INT, Arrays.copyOf(values, count), null, count));
+	}
+
+	/**
+	 * Adds a double column
+	 *
+	 * @param name   the column name
+	 * @param values the values
+	 * @param count  the amount of values
+	 */
+	public void addDoubles(final String name, final double[] values, final int count) {
+		columns.add(new Column(name, DOUBLE, null, Arrays.copyOf(values, count), count));
+	}
+
+	/**
+	 * Adds a string column, the strings are added to the dictionary
+	 *
+	 * @param name   the column name
+	 * @param values the values
+	 * @param count  the amount of values
+	 */
+	public void addStrings(final String name, final String[] values, final int count) {
+		final int[] indices = new int[count];
+		for (int i = 0; i < count; i++) {
+			indices[i] = dictionary.computeIfAbsent(values[i], s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+		columns.add(new Column(name, STRING, indices, null, count));
+	}
+
+	/**
+	 * Writes the file
+	 *
+	 * @param f the file
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(final File f) throws IOException {
+		try (ChannelOutput out = new ChannelOutput(f)) {
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putString(name);
+			out.putInt(strings.size());
+			for (String s : strings) {
+				out.putString(s);
+			}
+
+			out.putInt(columns.size());
+			for (Column c : columns) {
+				out.putString(c.name);
+				out.putByte(c.type);
+				out.putInt(c.count);
+				if (c.type == DOUBLE) {
+					out.putLong((long) c.count * Double.BYTES);
+					for (int i = 0; i < c.count; i++) {
+						out.putDouble(c.doubles[i]);
+					}
+				} else {
+					out.putLong((long) c.count * Integer.BYTES);
+					for (int i = 0; i < c.count; i++) {
+						out.putInt(c.ints[i]);
+					}
+				}
+			}
+		}
+	}
+
+	private static class Column {
+		private final String name;
+		private final byte type;
+		private final int[] ints;
+		private final double[] doubles;
+		private final int count;
+
+		private Column(final String name, final byte type, final int[] ints, final double[] doubles,
+		               final int count) {
+			this.name = name;
+			this.type = type;
+			this.ints = ints;
+			this.doubles = doubles;
+			this.count = count;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the new keys back to a weight config file (items-config.yml, mob-config.yml). The config is written to a
+ * temporary file and moved over the old one, so a crash never leaves a half written config behind.
+ * <p>
+ * The write holds a lock on a .lock file next to the config, so that more runs at once (e.g. from cron or in watch
+ * mode) do not race. Under the lock the config is read again and only the keys it does not have yet are added,
+ * so the weights edited or added by another run in the meantime are kept.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ConfigWriter {
+	private static final Logger L = LogManager.getLogger(ConfigWriter.class);
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private ConfigWriter() {
+	}
+
+	/**
+	 * Adds the keys the config file does not have yet. Synchronized, a file lock is held by the whole JVM and
+	 * locking it twice from the same JVM fails.
+	 *
+	 * @param f   the config file
+	 * @param map the config, key = the weight key, value = the weight
+	 * @return whether the config file was written, i.e. whether any key was added
+	 * @throws IOException if the config could not be written
+	 */
+	public static synchronized boolean addKeys(final File f, final Map<String, Object> map) throws IOException {
+		final Path lockFile = new File(f.getPath() + LOCK_SUFFIX).toPath();
+		try (FileChannel ch = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		     FileLock lock = ch.lock()) {
+			final Map<String, Object> merged = new LinkedHashMap<>(Main.readFile(f, new LinkedHashMap<>()));
+			final int size = merged.size();
+			for (Map.Entry<String, Object> e : map.entrySet()) {
+				merged.putIfAbsent(e.getKey(), e.getValue());
+			}
+			if (merged.size() == size) {
+				L.debug(String.format("%s already has all %d keys", f.getName(), size));
+				return false;
+			}
+
+			write(f.toPath(), merged);
+			L.info(String.format("Added %d new key(s) to %s", merged.size() - size, f.getName()));
+			return true;
+		}
+	}
+
+	private static void write(final Path path, final Map<String, Object> map) throws IOException {
+		// only written under the lock, a fixed name does not race
+		final Path tmp = path.resolveSibling(path.getFileName() + TMP_SUFFIX);
+		try {
+			try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				final Writer writer = Channels.newWriter(ch, StandardCharsets.UTF_8);
+				Main.getYaml().dump(map, writer);
+				writer.flush();
+				// on the disk before it replaces the config
+				ch.force(true);
+			}
+
+			try {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				L.warn(String.format("The file system does not support atomic moves, replacing %s in place",
+						path.getFileName()));
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package cz.helheim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Statistics computed from the data files in some directories and from config files in the working directory.
+ * The statistics are updated file by file, so that a change of a single file does not load everything again,
+ * see {@link Watcher}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public interface Dataset {
+	/**
+	 * @return the directories with the data files, including their subdirectories
+	 */
+	Collection<File> getDirectories();
+
+	/**
+	 * Updates the statistics after the file was created, modified or deleted
+	 *
+	 * @param f the absolute file
+	 * @return whether the statistics changed, i.e. whether they should be dumped again
+	 * @throws IOException if the file could not be read
+	 */
+	boolean update(File f) throws IOException;
+
+	/**
+	 * Loads all files again
+	 *
+	 * @throws IOException if a file could not be read
+	 */
+	void reload() throws IOException;
+
+	/**
+	 * Dumps the statistics (the config files, the data and the charts)
+	 *
+	 * @throws IOException if a file could not be written
+	 */
+	default void dump() throws IOException {
+		Pipeline.join(List.of(dump(Runnable::run)));
+	}
+
+	/**
+	 * Dumps the statistics, the independent outputs are written concurrently on the executor.
+	 * The dataset must not be updated until the returned future completes.
+	 *
+	 * @param executor the executor
+	 * @return the future completed when all outputs are written
+	 */
+	CompletableFuture<Void> dump(Executor executor);
+}
@@ -0,0 +1,180 @@
+package cz.helheim;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the pipeline phases. The events cost nothing unless a recording is running,
+ * e.g. {@code java -XX:StartFlightRecording=filename=run.jfr ...}, and are shown under "Diablo Items Statistics"
+ * in JDK Mission Control. The events are also timed into the run report, see {@link RunReport}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Events {
+	private static final String CATEGORY = "Diablo Items Statistics";
+
+	private Events() {
+	}
+
+	/**
+	 * A data file was loaded, either parsed or read from the parse cache
+	 */
+	@Name("cz.helheim.FileLoad")
+	@Label("File Load")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class FileLoad extends Event {
+		@Label("Path")
+		public String path;
+
+		@Label("Bytes")
+		@DataAmount
+		public long bytes;
+
+		@Label("Records")
+		public int records;
+	}
+
+	/**
+	 * The lore of the items or the enchantments of the mob items were scanned for attributes
+	 */
+	@Name("cz.helheim.LoreParse")
+	@Label("Lore Parse")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class LoreParse extends Event {
+		@Label("Source")
+		@Description("items or mob items")
+		public String source;
+
+		@Label("Records")
+		public int records;
+
+		@Label("Lines")
+		public int lines;
+
+		@Label("Matches")
+		public int matches;
+
+		@Label("Misses")
+		public int misses;
+	}
+
+	/**
+	 * The items of a file were ranked
+	 */
+	@Name("cz.helheim.Rank")
+	@Label("Rank")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class Rank extends Event {
+		@Label("Path")
+		public String path;
+
+		@Label("Items")
+		public int items;
+
+		@Label("Ranked")
+		@Description("The items with at least one attribute")
+		public int ranked;
+	}
+
+	/**
+	 * The items were checked against the blacklist
+	 */
+	@Name("cz.helheim.BlacklistFilter")
+	@Label("Blacklist Filter")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class BlacklistFilter extends Event {
+		@Label("Items")
+		public int items;
+
+		@Label("Filtered")
+		public int filtered;
+	}
+
+	/**
+	 * The equipment of the mobs was resolved to the mob items
+	 */
+	@Name("cz.helheim.EquipmentResolution")
+	@Label("Equipment Resolution")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class EquipmentResolution extends Event {
+		@Label("Mobs")
+		public int mobs;
+
+		@Label("References")
+		public int references;
+
+		@Label("Resolved")
+		public int resolved;
+
+		@Label("Misses")
+		@Description("Invalid references and references to unknown items")
+		public int misses;
+	}
+
+	/**
+	 * The items were ranked by many weight profiles at once
+	 */
+	@Name("cz.helheim.ProfileEvaluation")
+	@Label("Profile Evaluation")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class ProfileEvaluation extends Event {
+		@Label("Profiles")
+		public int profiles;
+
+		@Label("Items")
+		public int items;
+
+		@Label("Attributes")
+		@Description("the attribute values of all items")
+		public int attributes;
+	}
+
+	/**
+	 * The items or the mobs were dumped into a file
+	 */
+	@Name("cz.helheim.Dump")
+	@Label("Dump")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class Dump extends Event {
+		@Label("File")
+		public String file;
+
+		@Label("Format")
+		public String format;
+
+		@Label("Entries")
+		public int entries;
+	}
+
+	/**
+	 * A chart was exported, or skipped because its data did not change
+	 */
+	@Name("cz.helheim.Chart")
+	@Label("Chart")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	public static final class Chart extends Event {
+		@Label("File")
+		public String file;
+
+		@Label("Points")
+		public int points;
+
+		@Label("Skipped")
+		public boolean skipped;
+	}
+}
@@ -0,0 +1,181 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads every .yml file in a directory (and its subdirectories) in parallel on the fork-join pool.
+ * The results are merged in the order of the file paths, so the output does not depend on which file
+ * finished parsing first.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class FileLoader {
+	private static final Logger L = LogManager.getLogger(FileLoader.class);
+
+	/**
+	 * The amount of files a single fork-join task parses before it stops splitting
+	 */
+	private static final int BATCH_SIZE = 4;
+
+	private FileLoader() {
+	}
+
+	/**
+	 * Parses a single file
+	 *
+	 * @param <T> the value type
+	 */
+	@FunctionalInterface
+	public interface FileParser<T> {
+		/**
+		 * @param f the file to parse
+		 * @return the parsed data, key = ID, or {@code null} if the file contains no data
+		 * @throws IOException if the file could not be read
+		 */
+		Map<String, T> parse(File f) throws IOException;
+	}
+
+	/**
+	 * Loads and merges all .yml files in the directory. If a key is defined in more than one file, the
+	 * duplicate is reported and the file that comes later (by path) wins.
+	 *
+	 * @param dir    the directory
+	 * @param parser the file parser
+	 * @param <T>    the value type
+	 * @return the merged data, key = ID
+	 * @throws IOException if a file could not be read
+	 */
+	public static <T> Map<String, T> load(final File dir, final FileParser<T> parser) throws IOException {
+		return merge(loadAll(dir, parser));
+	}
+
+	/**
+	 * Loads all .yml files in the directory, keeping the data of each file separate
+	 *
+	 * @param dir    the directory
+	 * @param parser the file parser
+	 * @param <T>    the value type
+	 * @return the data of each file, ordered by file path
+	 * @throws IOException if a file could not be read
+	 */
+	public static <T> Map<File, Map<String, T>> loadAll(final File dir, final FileParser<T> parser)
+			throws IOException {
+		final List<File> files = new ArrayList<>();
+		collectFiles(dir, files);
+		files.sort(Comparator.comparing(File::getPath));
+
+		final List<Map<String, T>> results = new ArrayList<>(Collections.nCopies(files.size(), null));
+		try {
+			ForkJoinPool.commonPool().invoke(new LoadTask<>(files, results, parser, 0, files.size()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		final Map<File, Map<String, T>> loaded = new LinkedHashMap<>();
+		for (int i = 0; i < files.size(); i++) {
+			final Map<String, T> result = results.get(i);
+			loaded.put(files.get(i), result == null ? Collections.emptyMap() : result);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Merges the data of multiple files into one map, reporting keys defined in more than one file
+	 *
+	 * @param loaded the data of each file
+	 * @param <T>    the value type
+	 * @return the merged data
+	 */
+	public static <T> Map<String, T> merge(final Map<File, Map<String, T>> loaded) {
+		final Map<String, T> merged = new LinkedHashMap<>();
+		final Map<String, File> origin = new HashMap<>();
+		for (Map.Entry<File, Map<String, T>> e : loaded.entrySet()) {
+			for (Map.Entry<String, T> entry : e.getValue().entrySet()) {
+				final File previous = origin.put(entry.getKey(), e.getKey());
+				if (previous != null) {
+					L.warn(String.format("Duplicate key %s in %s (already defined in %s)", entry.getKey(),
+							e.getKey().getPath(), previous.getPath()));
+				}
+				merged.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return merged;
+	}
+
+	private static void collectFiles(final File dir, final List<File> files) {
+		final File[] children = dir.listFiles(x -> x.isDirectory() || x.getName().endsWith(".yml"));
+		if (children == null) {
+			return;
+		}
+		for (File f : children) {
+			if (f.isDirectory()) {
+				collectFiles(f, files);
+			} else {
+				files.add(f);
+			}
+		}
+	}
+
+	/**
+	 * Splits the file range in halves until it is small enough to be parsed by a single thread
+	 *
+	 * @param <T> the value type
+	 */
+	private static class LoadTask<T> extends RecursiveAction {
+		private final List<File> files;
+		private final List<Map<String, T>> results;
+		private final FileParser<T> parser;
+		private final int from, to;
+
+		private LoadTask(final List<File> files, final List<Map<String, T>> results, final FileParser<T> parser,
+		                 final int from, final int to) {
+			this.files = files;
+			this.results = results;
+			this.parser = parser;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH_SIZE) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new LoadTask<>(files, results, parser, from, mid),
+						new LoadTask<>(files, results, parser, mid, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				final File f = files.get(i);
+				final Events.FileLoad event = new Events.FileLoad();
+				final RunReport.Span span = RunReport.start(RunReport.Stage.LOAD, event);
+				final Map<String, T> result;
+				try {
+					result = parser.parse(f);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				// each task writes to its own slots only, invokeAll publishes the writes
+				results.set(i, result);
+
+				final int records = result == null ? 0 : result.size();
+				final long bytes = f.length();
+				span.end(records, bytes);
+				event.path = f.getPath();
+				event.bytes = bytes;
+				event.records = records;
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The records of the data files in a directory, kept separately for each file so that a single file can be
+ * replaced without loading the rest again. A key defined in more than one file belongs to the file that comes
+ * later (by path), the same as in {@link FileLoader#merge(Map)}.
+ *
+ * @param <T> the record type
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class FileRecords<T> {
+	private static final Logger L = LogManager.getLogger(FileRecords.class);
+	private static final Comparator<File> BY_PATH = Comparator.comparing(File::getPath);
+
+	private final Map<File, Map<String, T>> files = new TreeMap<>(BY_PATH);
+	// key -> the files that define the key, the last one owns it
+	private final Map<String, TreeSet<File>> definitions = new HashMap<>();
+
+	/**
+	 * Sets the records of the file, replacing the previous ones
+	 *
+	 * @param f       the file
+	 * @param records the records, key = ID
+	 * @return the files whose owned records changed, including the file itself
+	 */
+	public Set<File> put(final File f, final Map<String, T> records) {
+		final Map<String, T> previous = files.put(f, records);
+		return update(f, previous == null ? Collections.emptyMap() : previous, records);
+	}
+
+	/**
+	 * Removes the records of the file
+	 *
+	 * @param f the file
+	 * @return the files whose owned records changed, including the file itself
+	 */
+	public Set<File> remove(final File f) {
+		final Map<String, T> previous = files.remove(f);
+		if (previous == null) {
+			return Collections.emptySet();
+		}
+		return update(f, previous, Collections.emptyMap());
+	}
+
+	private Set<File> update(final File f, final Map<String, T> previous, final Map<String, T> records) {
+		final Set<File> affected = new TreeSet<>(BY_PATH);
+		affected.add(f);
+
+		final Set<String> keys = new HashSet<>(previous.keySet());
+		keys.addAll(records.keySet());
+		for (String key : keys) {
+			final TreeSet<File> defs = definitions.computeIfAbsent(key, x -> new TreeSet<>(BY_PATH));
+			final File ownerBefore = defs.isEmpty() ? null : defs.last();
+			if (records.containsKey(key)) {
+				defs.add(f);
+			} else {
+				defs.remove(f);
+			}
+
+			if (defs.isEmpty()) {
+				definitions.remove(key);
+				continue;
+			}
+			final File ownerAfter = defs.last();
+			if (ownerBefore != null && !ownerBefore.equals(ownerAfter)) {
+				affected.add(ownerBefore);
+			}
+			affected.add(ownerAfter);
+			if (defs.size() > 1 && records.containsKey(key) && !previous.containsKey(key)) {
+				final File other = defs.lower(f) != null ? defs.lower(f) : defs.higher(f);
+				L.warn(String.format("Duplicate key %s in %s (already defined in %s)", key, f.getPath(),
+						other.getPath()));
+			}
+		}
+		return affected;
+	}
+
+	/**
+	 * @param f the file
+	 * @return the records owned by the file, i.e. without the keys redefined by a later file
+	 */
+	public Map<String, T> getRecords(final File f) {
+		final Map<String, T> records = files.get(f);
+		if (records == null) {
+			return Collections.emptyMap();
+		}
+
+		final Map<String, T> owned = new LinkedHashMap<>();
+		for (Map.Entry<String, T> e : records.entrySet()) {
+			if (definitions.get(e.getKey()).last().equals(f)) {
+				owned.put(e.getKey(), e.getValue());
+			}
+		}
+		return owned;
+	}
+
+	/**
+	 * @return the files, ordered by path
+	 */
+	public Set<File> getFiles() {
+		return Collections.unmodifiableSet(files.keySet());
+	}
+
+	/**
+	 * @param f the file
+	 * @return whether the records of the file are kept
+	 */
+	public boolean contains(final File f) {
+		return files.containsKey(f);
+	}
+
+	/**
+	 * @return the records of all files, ordered by file path
+	 */
+	public Map<String, T> merged() {
+		final Map<String, T> merged = new LinkedHashMap<>();
+		for (File f : files.keySet()) {
+			merged.putAll(getRecords(f));
+		}
+		return merged;
+	}
+}
@@ -0,0 +1,320 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic item, mob item and mob files for scale testing. The files look like the server dumps: items
+ * have colour-coded lore lines with the level requirement and attributes in both the item attribute and the class
+ * attribute format, mob items have an Id and enchantments, mobs have a display name with a level, health, damage
+ * and equipment referencing the mob items.
+ * <p>
+ * The output only depends on the options, every file has its own random generator derived from the seed and the
+ * file index, so the files are written in parallel and still reproducible.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Generator {
+	private static final Logger L = LogManager.getLogger(Generator.class);
+
+	private static final String LEVEL_REQUIREMENT = "Potřebný Lvl";
+	private static final String[] ATTRIBUTES = {"Obrana", "Vitalita", "Síla", "Přesnost", "Vyhýbání", "Poškození",
+			"Inteligence", "Šance na kritický zásah", "Kritický útok", "Víra", "Regenerace many",
+			"Síla léčebných kouzel"};
+	private static final String[] FAMILIES = {"helm", "chest", "legs", "boots", "sword", "axe", "hul", "bow", "off",
+			"ring", "neck"};
+	private static final String[] ENCHANTMENTS = {"DAMAGE_ALL", "PROTECTION_ENVIRONMENTAL", "DURABILITY",
+			"FIRE_ASPECT", "KNOCKBACK", "THORNS"};
+	private static final char[] COLOURS = {'a', '6', 'b', 'e'};
+	private static final int MAX_ATTRIBUTES = 6;
+	private static final int MAX_EQUIPMENT = 5;
+	private static final int MAX_ENCHANTMENTS = 3;
+
+	private final Options options;
+	private final String[] attributes;
+	private final double[] attributeCdf;
+
+	private Generator(final Options options) {
+		this.options = options;
+		this.attributes = new String[options.attributes];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = i < ATTRIBUTES.length ? ATTRIBUTES[i] : "Atribut " + (i + 1);
+		}
+		this.attributeCdf = zipf(attributes.length, options.skew);
+	}
+
+	/**
+	 * Generates the files
+	 *
+	 * @param options     the options
+	 * @param itemsDir    the items directory
+	 * @param mobItemsDir the mob items directory
+	 * @param mobsDir     the mobs directory
+	 * @throws IOException if a file could not be written
+	 */
+	public static void generate(final Options options, final File itemsDir, final File mobItemsDir,
+	                            final File mobsDir) throws IOException {
+		final Generator generator = new Generator(options);
+		final long start = System.currentTimeMillis();
+		generator.writeFiles(itemsDir, "generated-items-", options.files, generator::writeItems);
+		generator.writeFiles(mobItemsDir, "generated-mob-items-", options.mobItemFiles, generator::writeMobItems);
+		generator.writeFiles(mobsDir, "generated-mobs-", options.mobFiles, generator::writeMobs);
+		L.info(String.format("Generated %d items, %d mob items and %d mobs in %d ms",
+				(long) options.files * options.items, (long) options.mobItemFiles * options.mobItems,
+				(long) options.mobFiles * options.mobs, System.currentTimeMillis() - start));
+	}
+
+	private void writeFiles(final File dir, final String prefix, final int files, final FileContent content)
+			throws IOException {
+		dir.mkdirs();
+		try {
+			IntStream.range(0, files).parallel().forEach(file -> {
+				final File f = new File(dir, String.format("%s%05d.yml", prefix, file));
+				try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f),
+						StandardCharsets.UTF_8), 1 << 16)) {
+					// SplittableRandom mixes its seed, so nearby seeds are fine
+					final long seed = options.seed + ((long) prefix.hashCode() << 32) + file;
+					content.write(out, file, new SplittableRandom(seed));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void writeItems(final Writer out, final int file, final SplittableRandom random) throws IOException {
+		final StringBuilder line = new StringBuilder();
+		for (int i = 0; i < options.items; i++) {
+			out.write(FAMILIES[random.nextInt(FAMILIES.length)] + "_" + file + "_" + i + ":\n");
+			out.write("  material: IRON_SWORD\n");
+			out.write("  name: '&6Generated item " + i + "'\n");
+			out.write("  lore:\n");
+
+			final int lvl = level(random);
+			writeLine(out, "&7" + LEVEL_REQUIREMENT + ": " + lvl);
+			writeLine(out, "");
+			for (int a = random.nextInt(MAX_ATTRIBUTES + 1); a > 0; a--) {
+				final String attribute = attributes[attribute(random)];
+				final int min = 1 + random.nextInt(1 + lvl);
+				final int max = min + random.nextInt(1 + lvl / 2);
+				final String percent = random.nextInt(4) == 0 ? "%" : "";
+				line.setLength(0);
+				line.append('&').append(COLOURS[random.nextInt(COLOURS.length)]);
+				if (random.nextBoolean()) {
+					// item attribute, &a+{min}-{max} {attribute}
+					line.append('+').append(min).append(percent);
+					if (max != min) {
+						line.append('-').append(max).append(percent);
+					}
+					line.append(' ').append(attribute);
+				} else {
+					// class attribute, &a{attribute}: {min}-{max}
+					line.append(attribute).append(": ").append(min).append(percent);
+					if (max != min) {
+						line.append('-').append(max).append(percent);
+					}
+				}
+				writeLine(out, line.toString());
+			}
+			writeLine(out, "&8&oGenerated from seed " + options.seed);
+		}
+	}
+
+	private void writeMobItems(final Writer out, final int file, final SplittableRandom random) throws IOException {
+		for (int i = 0; i < options.mobItems; i++) {
+			out.write(mobItemId(file, i) + ":\n");
+			out.write("  Id: " + (256 + random.nextInt(64)) + "\n");
+			out.write("  Enchantments:\n");
+			for (int e = random.nextInt(MAX_ENCHANTMENTS + 1); e > 0; e--) {
+				out.write("  - " + ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)] + ":" + (1 + random.nextInt(5))
+						+ "\n");
+			}
+		}
+	}
+
+	private void writeMobs(final Writer out, final int file, final SplittableRandom random) throws IOException {
+		final long mobItems = (long) options.mobItemFiles * options.mobItems;
+		for (int i = 0; i < options.mobs; i++) {
+			final int lvl = level(random);
+			out.write("mob_" + file + "_" + i + ":\n");
+			out.write("  Type: ZOMBIE\n");
+			out.write("  Display: '&8[&4Lv. " + lvl + "&8]&c Generated mob " + i + "'\n");
+			out.write("  Health: " + (10 + lvl * 20 + random.nextInt(1 + lvl * 10)) + "\n");
+			out.write("  Damage: " + (1 + lvl + random.nextInt(1 + lvl)) + "\n");
+			if (mobItems == 0) {
+				continue;
+			}
+			out.write("  Equipment:\n");
+			for (int slot = random.nextInt(MAX_EQUIPMENT + 1); slot > 0; slot--) {
+				final long item = random.nextLong(mobItems);
+				out.write("  - " + mobItemId((int) (item / options.mobItems), (int) (item % options.mobItems)) + ":"
+						+ slot + "\n");
+			}
+		}
+	}
+
+	private static String mobItemId(final int file, final int i) {
+		return "item_" + file + "_" + i;
+	}
+
+	private static void writeLine(final Writer out, final String line) throws IOException {
+		out.write("  - '");
+		out.write(line.replace("'", "''"));
+		out.write("'\n");
+	}
+
+	private int level(final SplittableRandom random) {
+		final int maxLevel = options.maxLevel;
+		switch (options.levels) {
+			case NORMAL:
+				// mean in the middle, 99.7% within the bounds
+				// Box-Muller
+				final double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+						* Math.cos(2 * Math.PI * random.nextDouble());
+				return clamp((int) Math.round(maxLevel / 2d + gaussian * maxLevel / 6d), maxLevel);
+			case LOW:
+				// exponential, most of the items are low level
+				return clamp(1 + (int) (-Math.log(1 - random.nextDouble()) * maxLevel / 4d), maxLevel);
+			case UNIFORM:
+			default:
+				return 1 + random.nextInt(maxLevel);
+		}
+	}
+
+	private static int clamp(final int lvl, final int maxLevel) {
+		return Math.max(1, Math.min(maxLevel, lvl));
+	}
+
+	private int attribute(final SplittableRandom random) {
+		final int i = Arrays.binarySearch(attributeCdf, random.nextDouble());
+		return Math.min(i < 0 ? -i - 1 : i, attributeCdf.length - 1);
+	}
+
+	/**
+	 * @return the cumulative distribution of a Zipf distribution, skew 0 is uniform
+	 */
+	private static double[] zipf(final int n, final double skew) {
+		final double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, skew);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	/**
+	 * Writes a single file
+	 */
+	@FunctionalInterface
+	private interface FileContent {
+		void write(Writer out, int file, SplittableRandom random) throws IOException;
+	}
+
+	/**
+	 * The level distribution of items and mobs
+	 */
+	public enum LevelDistribution {
+		UNIFORM, NORMAL, LOW
+	}
+
+	/**
+	 * The generator options, parsed from "key=value" arguments
+	 */
+	public static final class Options {
+		private long seed = 42;
+		private int files = 10;
+		private int items = 1000;
+		private int mobItemFiles = 1;
+		private int mobItems = 1000;
+		private int mobFiles = 10;
+		private int mobs = 1000;
+		private int attributes = ATTRIBUTES.length;
+		private double skew = 1d;
+		private int maxLevel = 60;
+		private LevelDistribution levels = LevelDistribution.UNIFORM;
+
+		/**
+		 * Parses the options, the keys are seed, files, items (per file), mob-item-files, mob-items (per file),
+		 * mob-files, mobs (per file), attributes (the amount of distinct attributes), skew (the Zipf exponent of
+		 * the attribute distribution, 0 = uniform), max-level and levels (uniform, normal, low)
+		 *
+		 * @param args the arguments, the ones without '=' are ignored
+		 * @return the options
+		 * @throws IllegalArgumentException if an option is unknown or invalid
+		 */
+		public static Options parse(final String[] args) {
+			final Options options = new Options();
+			for (String arg : args) {
+				final int eq = arg.indexOf('=');
+				if (eq == -1 || arg.startsWith("--")) {
+					continue;
+				}
+				final String key = arg.substring(0, eq);
+				final String value = arg.substring(eq + 1);
+				try {
+					switch (key) {
+						case "seed":
+							options.seed = Long.parseLong(value);
+							break;
+						case "files":
+							options.files = count(key, value);
+							break;
+						case "items":
+							options.items = count(key, value);
+							break;
+						case "mob-item-files":
+							options.mobItemFiles = count(key, value);
+							break;
+						case "mob-items":
+							options.mobItems = count(key, value);
+							break;
+						case "mob-files":
+							options.mobFiles = count(key, value);
+							break;
+						case "mobs":
+							options.mobs = count(key, value);
+							break;
+						case "attributes":
+							options.attributes = Math.max(1, count(key, value));
+							break;
+						case "skew":
+							options.skew = Double.parseDouble(value);
+							break;
+						case "max-level":
+							options.maxLevel = Math.max(1, count(key, value));
+							break;
+						case "levels":
+							options.levels = LevelDistribution.valueOf(value.toUpperCase(Locale.ROOT));
+							break;
+						default:
+							throw new IllegalArgumentException("Unknown generator option " + key);
+					}
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(String.format("Invalid value of %s: %s", key, value), e);
+				}
+			}
+			return options;
+		}
+
+		private static int count(final String key, final String value) {
+			final int count = Integer.parseInt(value);
+			if (count < 0) {
+				throw new IllegalArgumentException(String.format("%s cannot be negative", key));
+			}
+			return count;
+		}
+	}
+}
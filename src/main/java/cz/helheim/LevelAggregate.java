@@ -0,0 +1,298 @@
+package cz.helheim;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sum, count, min, max and quantiles of values per level, for one or more kinds of values (e.g. min/avg/max item
+ * rank). The quantiles are estimated by a {@link QuantileSketch} per level and kind, so the memory is bounded
+ * whatever the amount of values.
+ * <p>
+ * The level is a small bounded integer, so everything is stored in primitive arrays indexed by the level.
+ * Levels outside of [0, {@link #MAX_LEVEL}] are not aggregated, only counted, see {@link #getIgnored()}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LevelAggregate {
+	/**
+	 * The highest level that is aggregated
+	 */
+	public static final int MAX_LEVEL = 1 << 16;
+
+	private final int kinds;
+	private long[][] count;
+	private double[][] sum, min, max;
+	private QuantileSketch[][] sketches;
+	private int levels = 0;
+	private long ignored = 0;
+	private final BitSet stale = new BitSet();
+	// the levels whose sketches still have the values of a subtracted aggregate
+	private final BitSet staleSketches = new BitSet();
+
+	/**
+	 * @param kinds the amount of kinds of values
+	 */
+	public LevelAggregate(final int kinds) {
+		this.kinds = kinds;
+		this.count = new long[kinds][0];
+		this.sum = new double[kinds][0];
+		this.min = new double[kinds][0];
+		this.max = new double[kinds][0];
+		this.sketches = new QuantileSketch[kinds][0];
+	}
+
+	/**
+	 * Adds a value
+	 *
+	 * @param kind  the kind of the value
+	 * @param lvl   the level
+	 * @param value the value
+	 */
+	public void add(final int kind, final int lvl, final double value) {
+		if (lvl < 0 || lvl > MAX_LEVEL) {
+			ignored++;
+			return;
+		}
+		ensureLevels(lvl + 1);
+
+		if (count[kind][lvl]++ == 0) {
+			min[kind][lvl] = value;
+			max[kind][lvl] = value;
+		} else {
+			min[kind][lvl] = Math.min(min[kind][lvl], value);
+			max[kind][lvl] = Math.max(max[kind][lvl], value);
+		}
+		sum[kind][lvl] += value;
+		sketch(kind, lvl).add(value);
+	}
+
+	private QuantileSketch sketch(final int kind, final int lvl) {
+		QuantileSketch sketch = sketches[kind][lvl];
+		if (sketch == null) {
+			sketch = sketches[kind][lvl] = new QuantileSketch();
+		}
+		return sketch;
+	}
+
+	/**
+	 * Adds all values of the other aggregate to this one
+	 *
+	 * @param other the other aggregate, must have the same amount of kinds
+	 */
+	public void merge(final LevelAggregate other) {
+		ensureLevels(other.levels);
+		for (int kind = 0; kind < kinds; kind++) {
+			for (int lvl = 0; lvl < other.levels; lvl++) {
+				final long otherCount = other.count[kind][lvl];
+				if (otherCount == 0) {
+					continue;
+				}
+				if (count[kind][lvl] == 0) {
+					min[kind][lvl] = other.min[kind][lvl];
+					max[kind][lvl] = other.max[kind][lvl];
+				} else {
+					min[kind][lvl] = Math.min(min[kind][lvl], other.min[kind][lvl]);
+					max[kind][lvl] = Math.max(max[kind][lvl], other.max[kind][lvl]);
+				}
+				count[kind][lvl] += otherCount;
+				sum[kind][lvl] += other.sum[kind][lvl];
+				sketch(kind, lvl).merge(other.sketches[kind][lvl]);
+			}
+		}
+		ignored += other.ignored;
+	}
+
+	/**
+	 * @return a copy of this aggregate, independent of later changes of this one
+	 */
+	public LevelAggregate copy() {
+		final LevelAggregate copy = new LevelAggregate(kinds);
+		copy.merge(this);
+		return copy;
+	}
+
+	/**
+	 * Removes all values of the other aggregate from this one, the other aggregate must have been merged into
+	 * this one before. The sums and counts are updated right away, the min/max of levels where the other
+	 * aggregate held the extreme value and the quantiles of the levels it had values of are recomputed by
+	 * {@link #refresh(Collection)}, a sketch cannot have values removed.
+	 *
+	 * @param other the other aggregate, must have the same amount of kinds
+	 */
+	public void subtract(final LevelAggregate other) {
+		for (int kind = 0; kind < kinds; kind++) {
+			for (int lvl = 0; lvl < other.levels; lvl++) {
+				final long otherCount = other.count[kind][lvl];
+				if (otherCount == 0) {
+					continue;
+				}
+				count[kind][lvl] -= otherCount;
+				staleSketches.set(lvl);
+				if (count[kind][lvl] == 0) {
+					sum[kind][lvl] = 0d;
+					continue;
+				}
+				sum[kind][lvl] -= other.sum[kind][lvl];
+				if (other.min[kind][lvl] <= min[kind][lvl] || other.max[kind][lvl] >= max[kind][lvl]) {
+					stale.set(lvl);
+				}
+			}
+		}
+		ignored -= other.ignored;
+	}
+
+	/**
+	 * Recomputes the min/max values and the quantiles invalidated by {@link #subtract(LevelAggregate)}
+	 *
+	 * @param parts the aggregates that make up this aggregate
+	 */
+	public void refresh(final Collection<LevelAggregate> parts) {
+		for (int lvl = stale.nextSetBit(0); lvl >= 0; lvl = stale.nextSetBit(lvl + 1)) {
+			for (int kind = 0; kind < kinds; kind++) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (LevelAggregate part : parts) {
+					if (part.getCount(kind, lvl) > 0) {
+						min = Math.min(min, part.min[kind][lvl]);
+						max = Math.max(max, part.max[kind][lvl]);
+					}
+				}
+				this.min[kind][lvl] = min;
+				this.max[kind][lvl] = max;
+			}
+		}
+		stale.clear();
+
+		for (int lvl = staleSketches.nextSetBit(0); lvl >= 0; lvl = staleSketches.nextSetBit(lvl + 1)) {
+			for (int kind = 0; kind < kinds; kind++) {
+				sketches[kind][lvl] = null;
+				for (LevelAggregate part : parts) {
+					if (part.getCount(kind, lvl) > 0) {
+						sketch(kind, lvl).merge(part.sketches[kind][lvl]);
+					}
+				}
+			}
+		}
+		staleSketches.clear();
+	}
+
+	private void ensureLevels(final int levels) {
+		if (levels <= this.levels) {
+			return;
+		}
+		if (levels > count[0].length) {
+			final int capacity = Math.max(levels, count[0].length * 2);
+			for (int kind = 0; kind < kinds; kind++) {
+				count[kind] = Arrays.copyOf(count[kind], capacity);
+				sum[kind] = Arrays.copyOf(sum[kind], capacity);
+				min[kind] = Arrays.copyOf(min[kind], capacity);
+				max[kind] = Arrays.copyOf(max[kind], capacity);
+				sketches[kind] = Arrays.copyOf(sketches[kind], capacity);
+			}
+		}
+		this.levels = levels;
+	}
+
+	/**
+	 * @return the highest aggregated level + 1
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * @return whether no value was aggregated
+	 */
+	public boolean isEmpty() {
+		for (int lvl = 0; lvl < levels; lvl++) {
+			for (int kind = 0; kind < kinds; kind++) {
+				if (count[kind][lvl] > 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the amount of values that were not aggregated because their level was out of bounds
+	 */
+	public long getIgnored() {
+		return ignored;
+	}
+
+	public long getCount(final int kind, final int lvl) {
+		return lvl < levels ? count[kind][lvl] : 0;
+	}
+
+	public double getSum(final int kind, final int lvl) {
+		return lvl < levels ? sum[kind][lvl] : 0d;
+	}
+
+	/**
+	 * @param kind the kind of the value
+	 * @param lvl  the level
+	 * @return the mean of the values, or NaN if there are none
+	 */
+	public double getMean(final int kind, final int lvl) {
+		final long count = getCount(kind, lvl);
+		return count == 0 ? Double.NaN : sum[kind][lvl] / count;
+	}
+
+	/**
+	 * @param kind the kind of the value
+	 * @param lvl  the level
+	 * @return the min value, or NaN if there are none
+	 */
+	public double getMin(final int kind, final int lvl) {
+		return getCount(kind, lvl) == 0 ? Double.NaN : min[kind][lvl];
+	}
+
+	/**
+	 * @param kind the kind of the value
+	 * @param lvl  the level
+	 * @return the max value, or NaN if there are none
+	 */
+	public double getMax(final int kind, final int lvl) {
+		return getCount(kind, lvl) == 0 ? Double.NaN : max[kind][lvl];
+	}
+
+	/**
+	 * @param kind the kind of the value
+	 * @param lvl  the level
+	 * @param q    the quantile, between 0 and 1, e.g. 0.5 for the median
+	 * @return the estimated quantile of the values, see {@link QuantileSketch#getQuantile(double)}, or NaN if
+	 * there are none
+	 */
+	public double getQuantile(final int kind, final int lvl, final double q) {
+		return getCount(kind, lvl) == 0 ? Double.NaN : sketches[kind][lvl].getQuantile(q);
+	}
+
+	/**
+	 * The statistics of a level for the reports: count, mean, min, p10, median, p90 and max
+	 *
+	 * @param kind the kind of the value
+	 * @param lvl  the level
+	 * @return the statistics, empty if there are no values
+	 */
+	public Map<String, Object> summarize(final int kind, final int lvl) {
+		final Map<String, Object> map = new LinkedHashMap<>();
+		final long count = getCount(kind, lvl);
+		if (count == 0) {
+			return map;
+		}
+		map.put("count", count);
+		map.put("mean", getMean(kind, lvl));
+		map.put("min", getMin(kind, lvl));
+		map.put("p10", getQuantile(kind, lvl, 0.1));
+		map.put("median", getQuantile(kind, lvl, 0.5));
+		map.put("p90", getQuantile(kind, lvl, 0.9));
+		map.put("max", getMax(kind, lvl));
+		return map;
+	}
+}
@@ -0,0 +1,430 @@
+package cz.helheim;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * An immutable in-memory index of ranked values (items, mobs) for repeated queries by level range, keys (attributes,
+ * equipment) and score (avg rank, weight), e.g. all items between level 20 and 30 with Vyhýbání, best first:
+ * <pre>
+ * index.query().levels(20, 30).with("Vyhýbání").orderBy(LevelIndex.Order.SCORE).list()
+ * </pre>
+ * The values are ordered by level once when the index is built, so a level range is a range of positions found by
+ * binary search. Every key has a sorted list of the positions of the values with the key, the lists of the queried
+ * keys are cut to the level range and intersected. The positions are also ordered by score once, so that a query
+ * sorted by score only sorts its own results, or reads the score order directly if it has no keys.
+ *
+ * @param <T> the value type
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LevelIndex<T> {
+	private static final int[] EMPTY = new int[0];
+	/**
+	 * A level range with less than 1/NARROW_RANGE of the values is sorted by score instead of scanning the score
+	 * order
+	 */
+	private static final int NARROW_RANGE = 16;
+
+	private final IntFunction<T> values;
+	// position -> the index the value was added with, see Builder#add
+	private final int[] indices;
+	// position -> level, ascending
+	private final int[] levels;
+	// score order -> position, the highest score first, ties by position
+	private final int[] byScore;
+	// position -> score order
+	private final int[] scoreOrder;
+	// key -> ascending positions
+	private final Map<String, int[]> postings;
+
+	private LevelIndex(final IntFunction<T> values, final int[] indices, final int[] levels, final int[] byScore,
+	                   final Map<String, int[]> postings) {
+		this.values = values;
+		this.indices = indices;
+		this.levels = levels;
+		this.byScore = byScore;
+		this.postings = postings;
+		this.scoreOrder = new int[byScore.length];
+		for (int i = 0; i < byScore.length; i++) {
+			scoreOrder[byScore[i]] = i;
+		}
+	}
+
+	/**
+	 * The orders of the query results
+	 */
+	public enum Order {
+		/**
+		 * The lowest level first, the values of the same level in the order they were added
+		 */
+		LEVEL,
+		/**
+		 * The highest score first
+		 */
+		SCORE,
+		/**
+		 * The lowest score first, the exact reverse of {@link #SCORE}
+		 */
+		SCORE_ASCENDING
+	}
+
+	/**
+	 * @return a new query matching all values, in the level order
+	 */
+	public Query query() {
+		return new Query();
+	}
+
+	/**
+	 * @param index the index the value was added with, see {@link Builder#add(int, double, Iterable)}
+	 * @return the value
+	 */
+	public T get(final int index) {
+		return values.apply(index);
+	}
+
+	/**
+	 * @return the amount of values
+	 */
+	public int size() {
+		return indices.length;
+	}
+
+	/**
+	 * @return the keys, in no particular order
+	 */
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(postings.keySet());
+	}
+
+	/**
+	 * @param key the key
+	 * @return the amount of values with the key
+	 */
+	public int count(final String key) {
+		return postings.getOrDefault(key, EMPTY).length;
+	}
+
+	/**
+	 * @return the index of the first position with a level of at least lvl
+	 */
+	private int lowerBound(final int lvl) {
+		int lo = 0;
+		int hi = levels.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (levels[mid] < lvl) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * A query, the conditions are combined with AND
+	 */
+	public final class Query {
+		private int minLvl = Integer.MIN_VALUE;
+		private int maxLvl = Integer.MAX_VALUE;
+		private final List<String> keys = new ArrayList<>(2);
+		private Order order = Order.LEVEL;
+		private int limit = Integer.MAX_VALUE;
+
+		private Query() {
+		}
+
+		/**
+		 * @param minLvl the lowest level, inclusive
+		 * @param maxLvl the highest level, inclusive
+		 * @return this query
+		 */
+		public Query levels(final int minLvl, final int maxLvl) {
+			this.minLvl = minLvl;
+			this.maxLvl = maxLvl;
+			return this;
+		}
+
+		/**
+		 * @param key the key the values must have, e.g. an attribute name
+		 * @return this query
+		 */
+		public Query with(final String key) {
+			keys.add(key);
+			return this;
+		}
+
+		/**
+		 * @param order the order of the results
+		 * @return this query
+		 */
+		public Query orderBy(final Order order) {
+			this.order = order;
+			return this;
+		}
+
+		/**
+		 * @param limit the most results, the first ones in the order are kept
+		 * @return this query
+		 */
+		public Query limit(final int limit) {
+			if (limit < 0) {
+				throw new IllegalArgumentException("The limit must not be negative");
+			}
+			this.limit = limit;
+			return this;
+		}
+
+		/**
+		 * @return the indices the results were added to the index with, see {@link Builder#add(int, double, Iterable)}
+		 */
+		public int[] indices() {
+			final int[] positions = positions();
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = indices[positions[i]];
+			}
+			return positions;
+		}
+
+		/**
+		 * @return the results
+		 */
+		public List<T> list() {
+			final int[] positions = positions();
+			final List<T> list = new ArrayList<>(positions.length);
+			for (int position : positions) {
+				list.add(values.apply(indices[position]));
+			}
+			return list;
+		}
+
+		/**
+		 * @return the amount of results, up to the limit
+		 */
+		public int count() {
+			if (keys.isEmpty()) {
+				return Math.min(limit, Math.max(0, to() - from()));
+			}
+			return positions().length;
+		}
+
+		private int from() {
+			return lowerBound(minLvl);
+		}
+
+		private int to() {
+			return maxLvl == Integer.MAX_VALUE ? levels.length : lowerBound(maxLvl + 1);
+		}
+
+		private int[] positions() {
+			final int from = from();
+			final int to = to();
+			if (from >= to || limit == 0) {
+				return EMPTY;
+			}
+
+			if (keys.isEmpty()) {
+				if (order != Order.LEVEL && (long) (to - from) * NARROW_RANGE >= levels.length) {
+					return scanByScore(from, to);
+				}
+				// sorting a narrow range by score is cheaper than scanning the whole score order
+				final int[] range = new int[order == Order.LEVEL ? Math.min(limit, to - from) : to - from];
+				for (int i = 0; i < range.length; i++) {
+					range[i] = from + i;
+				}
+				if (order == Order.LEVEL) {
+					return range;
+				}
+				sortByScore(range);
+				return range.length > limit ? Arrays.copyOf(range, limit) : range;
+			}
+
+			final int[] matches = matchKeys(from, to);
+			if (order != Order.LEVEL) {
+				sortByScore(matches);
+			}
+			return matches.length > limit ? Arrays.copyOf(matches, limit) : matches;
+		}
+
+		/**
+		 * Reads the score order and keeps the positions in the level range, until the limit
+		 */
+		private int[] scanByScore(final int from, final int to) {
+			final int[] matches = new int[Math.min(limit, to - from)];
+			int size = 0;
+			for (int i = 0; i < byScore.length && size < matches.length; i++) {
+				final int position = byScore[order == Order.SCORE ? i : byScore.length - 1 - i];
+				if (position >= from && position < to) {
+					matches[size++] = position;
+				}
+			}
+			return matches;
+		}
+
+		/**
+		 * Intersects the posting lists of the keys cut to the level range, starting with the shortest list
+		 */
+		private int[] matchKeys(final int from, final int to) {
+			final int[][] lists = new int[keys.size()][];
+			for (int k = 0; k < lists.length; k++) {
+				final int[] list = postings.get(keys.get(k));
+				if (list == null) {
+					return EMPTY;
+				}
+				lists[k] = list;
+			}
+			Arrays.sort(lists, Comparator.comparingInt(l -> l.length));
+
+			final int[] first = lists[0];
+			int lo = Arrays.binarySearch(first, from);
+			lo = lo < 0 ? -lo - 1 : lo;
+			int hi = Arrays.binarySearch(first, to);
+			hi = hi < 0 ? -hi - 1 : hi;
+			final int[] matches = Arrays.copyOfRange(first, lo, hi);
+			int size = matches.length;
+			for (int k = 1; k < lists.length && size > 0; k++) {
+				// the matches are far fewer than the list, binary search beats merging
+				final int[] list = lists[k];
+				int kept = 0;
+				int start = 0;
+				for (int i = 0; i < size; i++) {
+					final int found = Arrays.binarySearch(list, start, list.length, matches[i]);
+					if (found >= 0) {
+						matches[kept++] = matches[i];
+						start = found + 1;
+					} else {
+						start = -found - 1;
+					}
+				}
+				size = kept;
+			}
+			return size == matches.length ? matches : Arrays.copyOf(matches, size);
+		}
+
+		private void sortByScore(final int[] positions) {
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = scoreOrder[positions[i]];
+			}
+			Arrays.sort(positions);
+			final int n = positions.length;
+			for (int i = 0; i < n; i++) {
+				positions[i] = byScore[positions[i]];
+			}
+			if (order == Order.SCORE_ASCENDING) {
+				for (int i = 0; i < n / 2; i++) {
+					final int tmp = positions[i];
+					positions[i] = positions[n - 1 - i];
+					positions[n - 1 - i] = tmp;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the values in any order, the index is built once all are added
+	 */
+	public static final class Builder {
+		private int[] levels;
+		private double[] scores;
+		private int size = 0;
+		private final Map<String, Postings> postings = new HashMap<>();
+
+		/**
+		 * @param capacity the expected amount of values
+		 */
+		public Builder(final int capacity) {
+			this.levels = new int[Math.max(1, capacity)];
+			this.scores = new double[Math.max(1, capacity)];
+		}
+
+		/**
+		 * Adds the next value, the first value added has index 0, the second one 1 etc.
+		 *
+		 * @param lvl   the level
+		 * @param score the score, higher is better
+		 * @param keys  the keys of the value, a key may repeat
+		 */
+		public void add(final int lvl, final double score, final Iterable<String> keys) {
+			if (size == levels.length) {
+				levels = Arrays.copyOf(levels, size * 2);
+				scores = Arrays.copyOf(scores, size * 2);
+			}
+			levels[size] = lvl;
+			scores[size] = score;
+			for (String key : keys) {
+				postings.computeIfAbsent(key, k -> new Postings()).add(size);
+			}
+			size++;
+		}
+
+		/**
+		 * @param values gets the value by the index it was added with
+		 * @param <T>    the value type
+		 * @return the index
+		 */
+		public <T> LevelIndex<T> build(final IntFunction<T> values) {
+			// (level, index) packed into a long sorts by level, then by index, the level may be negative
+			final long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = ((long) levels[i] << 32) | i;
+			}
+			Arrays.sort(keys);
+
+			final int[] indices = new int[size];
+			final int[] sortedLevels = new int[size];
+			final int[] positionOf = new int[size];
+			for (int position = 0; position < size; position++) {
+				final int i = (int) keys[position];
+				indices[position] = i;
+				sortedLevels[position] = levels[i];
+				positionOf[i] = position;
+			}
+
+			final Integer[] byScore = new Integer[size];
+			for (int position = 0; position < size; position++) {
+				byScore[position] = position;
+			}
+			Arrays.sort(byScore, (a, b) -> {
+				final int c = Double.compare(scores[indices[b]], scores[indices[a]]);
+				return c != 0 ? c : Integer.compare(a, b);
+			});
+			final int[] sorted = new int[size];
+			for (int i = 0; i < size; i++) {
+				sorted[i] = byScore[i];
+			}
+
+			final Map<String, int[]> positions = new HashMap<>(postings.size() * 2);
+			for (Map.Entry<String, Postings> e : postings.entrySet()) {
+				final int[] list = Arrays.copyOf(e.getValue().indices, e.getValue().size);
+				for (int i = 0; i < list.length; i++) {
+					list[i] = positionOf[list[i]];
+				}
+				Arrays.sort(list);
+				positions.put(e.getKey(), list);
+			}
+			return new LevelIndex<>(values, indices, sortedLevels, sorted, positions);
+		}
+	}
+
+	/**
+	 * The indices of the values with a key, ascending
+	 */
+	private static final class Postings {
+		private int[] indices = new int[4];
+		private int size = 0;
+
+		private void add(final int index) {
+			if (size > 0 && indices[size - 1] == index) {
+				// the key repeats in the value
+				return;
+			}
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+			indices[size++] = index;
+		}
+	}
+}
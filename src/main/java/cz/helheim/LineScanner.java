@@ -0,0 +1,267 @@
+package cz.helheim;
+
+/**
+ * A hand-written replacement of the regular expressions used for parsing the data files. Each scan is a single
+ * pass over the line and the only thing ever allocated is the name of the match.
+ * <p>
+ * The scans match exactly what {@link java.util.regex.Matcher#find()} of the original patterns would, see
+ * {@link cz.helheim.items.Attribute#ATTRIBUTE_PATTERN}, {@link cz.helheim.items.Attribute#CLASS_PATTERN},
+ * {@link cz.helheim.mobs.Mob#NAME_PATTERN}, {@link cz.helheim.mobs.MobItem#EQUIPMENT_PATTERN} and
+ * {@link cz.helheim.mobs.Enchantment#ENCHANTMENT_PATTERN}. The only difference is that a number that does not
+ * fit into an int is not a match, instead of throwing a {@link NumberFormatException}.
+ * <p>
+ * A scanner is meant to be reused for many lines, it is not thread safe.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LineScanner {
+	private String line;
+	// the line of the last match, a failed scan keeps the previous match
+	private String matched;
+	private int nameStart, nameEnd;
+	private int min, max;
+
+	/**
+	 * Scans the line for an item attribute ("&amp;a+{min}-{max} {attribute}") or a class attribute
+	 * ("&amp;a{attribute}: {min}-{max}"), in that order. The max value is optional, if it is missing it is the
+	 * same as the min value.
+	 *
+	 * @param line the lore line
+	 * @return {@code true} if the line contains an attribute
+	 */
+	public boolean scanAttribute(final String line) {
+		this.line = line;
+		return scanItemAttribute() || scanClassAttribute();
+	}
+
+	/**
+	 * Scans the line for an enchantment ("{enchantment}:{level}"). The level is available as {@link #getMin()}.
+	 *
+	 * @param line the enchantment line
+	 * @return {@code true} if the line contains an enchantment
+	 */
+	public boolean scanEnchantment(final String line) {
+		this.line = line;
+		final int len = line.length();
+		for (int a = 0; a <= len; a = lineEnd(line, a) + 1) {
+			final int b = lineEnd(line, a);
+			// the last ':' followed by a digit
+			for (int j = b - 2; j >= a; j--) {
+				if (line.charAt(j) == ':' && isDigit(line.charAt(j + 1))) {
+					final int level = parseInt(line, j + 1, skipDigits(line, j + 1));
+					if (level < 0) {
+						return false;
+					}
+					matched = line;
+					nameStart = a;
+					nameEnd = j;
+					min = max = level;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scans the line for an equipment ID ("{equipment}:{slot}")
+	 *
+	 * @param line the equipment line
+	 * @return the equipment ID or {@code null} if the line does not contain one
+	 */
+	public static String scanEquipmentId(final String line) {
+		final int len = line.length();
+		for (int a = 0; a < len; a = lineEnd(line, a) + 1) {
+			final int b = lineEnd(line, a);
+			// the last ':' followed by a digit, with at least one character before it
+			for (int j = b - 2; j > a; j--) {
+				if (line.charAt(j) == ':' && isDigit(line.charAt(j + 1))) {
+					return line.substring(a, j);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Scans the mob name for its level ("&amp;8[&amp;4Lv. {level}&amp;8]&amp;c {name}")
+	 *
+	 * @param line the mob display name
+	 * @return the level or 0 if the name does not contain one
+	 */
+	public static int scanLevel(final String line) {
+		final int len = line.length();
+		for (int p = line.indexOf('[', 2); p != -1; p = line.indexOf('[', p + 1)) {
+			// ..[&.Lv. (\d+)&.][ ]*&.
+			if (!isAny(line, p - 2) || !isAny(line, p - 1) || !is(line, p + 1, '&') || !isAny(line, p + 2) ||
+					!line.startsWith("Lv. ", p + 3)) {
+				continue;
+			}
+			final int digits = p + 7;
+			final int d = skipDigits(line, digits);
+			if (d == digits || !is(line, d, '&') || !isAny(line, d + 1) || !is(line, d + 2, ']')) {
+				continue;
+			}
+			int k = d + 3;
+			while (k < len && line.charAt(k) == ' ') {
+				k++;
+			}
+			if (!is(line, k, '&') || !isAny(line, k + 1)) {
+				continue;
+			}
+			return Math.max(parseInt(line, digits, d), 0);
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the name of the last match, i.e. the attribute or the enchantment ID
+	 */
+	public String getName() {
+		return matched.substring(nameStart, nameEnd);
+	}
+
+	/**
+	 * @return the min value of the last match
+	 */
+	public int getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the max value of the last match
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	// &.\+(\d+)%?(-(\d+))?%? (.*)
+	private boolean scanItemAttribute() {
+		for (int i = line.indexOf('&'); i != -1; i = line.indexOf('&', i + 1)) {
+			if (!isAny(line, i + 1) || !is(line, i + 2, '+')) {
+				continue;
+			}
+
+			final int minStart = i + 3;
+			final int minEnd = skipDigits(line, minStart);
+			if (minEnd == minStart) {
+				continue;
+			}
+
+			int t = skipPercent(line, minEnd);
+			int maxStart = -1, maxEnd = -1;
+			if (is(line, t, '-') && t + 1 < line.length() && isDigit(line.charAt(t + 1))) {
+				maxStart = t + 1;
+				maxEnd = skipDigits(line, maxStart);
+				t = skipPercent(line, maxEnd);
+			} else {
+				t = skipPercent(line, t);
+			}
+			if (!is(line, t, ' ')) {
+				continue;
+			}
+			return match(minStart, minEnd, maxStart, maxEnd, t + 1, lineEnd(line, t + 1));
+		}
+		return false;
+	}
+
+	// &.(.*): (\d+)%?(-(\d+))?%?
+	private boolean scanClassAttribute() {
+		for (int i = line.indexOf('&'); i != -1; i = line.indexOf('&', i + 1)) {
+			if (!isAny(line, i + 1)) {
+				continue;
+			}
+
+			// the last ": " followed by a digit in the rest of the line
+			final int end = lineEnd(line, i + 2);
+			for (int j = end - 3; j >= i + 2; j--) {
+				if (line.charAt(j) != ':' || line.charAt(j + 1) != ' ' || !isDigit(line.charAt(j + 2))) {
+					continue;
+				}
+
+				final int minStart = j + 2;
+				final int minEnd = skipDigits(line, minStart);
+				final int t = skipPercent(line, minEnd);
+				int maxStart = -1, maxEnd = -1;
+				if (is(line, t, '-') && t + 1 < line.length() && isDigit(line.charAt(t + 1))) {
+					maxStart = t + 1;
+					maxEnd = skipDigits(line, maxStart);
+				}
+				return match(minStart, minEnd, maxStart, maxEnd, i + 2, j);
+			}
+		}
+		return false;
+	}
+
+	private boolean match(final int minStart, final int minEnd, final int maxStart, final int maxEnd,
+	                      final int nameStart, final int nameEnd) {
+		final int min = parseInt(line, minStart, minEnd);
+		if (min < 0) {
+			return false;
+		}
+		final int max = maxStart == -1 ? min : parseInt(line, maxStart, maxEnd);
+		this.min = min;
+		// the original patterns fall back to the min value if the max value could not be parsed
+		this.max = max < 0 ? min : max;
+		this.matched = line;
+		this.nameStart = nameStart;
+		this.nameEnd = nameEnd;
+		return true;
+	}
+
+	/**
+	 * @return the parsed digits or -1 if the number does not fit into an int
+	 */
+	private static int parseInt(final String line, final int from, final int to) {
+		long val = 0;
+		for (int i = from; i < to; i++) {
+			val = val * 10 + (line.charAt(i) - '0');
+			if (val > Integer.MAX_VALUE) {
+				return -1;
+			}
+		}
+		return (int) val;
+	}
+
+	private static int skipDigits(final String line, int i) {
+		while (i < line.length() && isDigit(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipPercent(final String line, final int i) {
+		return is(line, i, '%') ? i + 1 : i;
+	}
+
+	/**
+	 * @return the index of the first line terminator at or after the index, or the line length
+	 */
+	private static int lineEnd(final String line, int i) {
+		while (i < line.length() && !isLineTerminator(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean is(final String line, final int i, final char c) {
+		return i >= 0 && i < line.length() && line.charAt(i) == c;
+	}
+
+	/**
+	 * @return whether the regex "." matches the character at the index
+	 */
+	private static boolean isAny(final String line, final int i) {
+		return i >= 0 && i < line.length() && !isLineTerminator(line.charAt(i));
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLineTerminator(final char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+}
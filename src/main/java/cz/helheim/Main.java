@@ -1,21 +1,17 @@
 package cz.helheim;
 
+import cz.helheim.items.ItemDataset;
 import cz.helheim.items.ItemStatistics;
+import cz.helheim.items.WeightProfiles;
+import cz.helheim.mobs.MobDataset;
 import cz.helheim.mobs.MobStatistics;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.labels.StandardXYItemLabelGenerator;
-import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.svg.SVGGraphics2D;
-import org.jfree.svg.SVGUtils;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
 
-import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Map;
+import java.io.Reader;
+import java.util.*;
 
 /**
  * The entry point
@@ -26,22 +22,99 @@ import java.util.Map;
  */
 public class Main {
 	private static final String OUT_PATH = "out";
-	private static final int WIDTH = 1920;
-	private static final int HEIGHT = 1080;
-	private static final Yaml yaml;
+	private static final String CACHE_PATH = "cache";
+	private static final String WATCH = "--watch";
+	private static final String GENERATE = "--generate";
+	private static final String SVGZ = "--svgz";
+	private static final String MAX_POINTS = "--max-points=";
+	private static final String FORMAT = "--format=";
+	private static final String SERVE = "--serve";
+	private static final String PORT = "--port=";
+	private static final String PROFILES = "--profiles";
+	// Yaml instances are not thread safe, files are loaded in parallel
+	private static final ThreadLocal<Yaml> yaml = ThreadLocal.withInitial(Main::createYaml);
+	private static volatile Set<OutputFormat> outputFormats = EnumSet.of(OutputFormat.YAML);
 
 	// set up YAML
-	static {
+	private static Yaml createYaml() {
+		return new Yaml(createDumperOptions());
+	}
+
+	/**
+	 * @return new options of the YAML dumps
+	 */
+	public static DumperOptions createDumperOptions() {
 		final DumperOptions options = new DumperOptions();
 		options.setIndent(2);
 		options.setPrettyFlow(true);
 		options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-		yaml = new Yaml(options);
+		// the immutable beans, e.g. the enchantments, only have getters
+		options.setAllowReadOnlyProperties(true);
+		return options;
 	}
 
+	/**
+	 * Parses the items and the mobs and dumps their statistics, see {@link Pipeline}. With {@value #WATCH}, the
+	 * files are then watched and the statistics are dumped again whenever they change, see {@link Watcher}.
+	 * With {@value #GENERATE}, synthetic data files are generated instead, see
+	 * {@link Generator.Options#parse(String[])}.
+	 * With {@value #SVGZ}, the charts are gzipped and with {@value #MAX_POINTS}{@code <n>}, the chart series are
+	 * downsampled to at most n points, see {@link ChartWriter}. The items are also charted per attribute and per item
+	 * family, linked by the item-charts.html page, see {@link ChartSet}. With {@value #FORMAT}{@code <formats>}, the items
+	 * and the mobs are dumped in the given formats instead of YAML, e.g. {@code --format=yaml,csv,bin}, see
+	 * {@link OutputFormat}. The time and the allocations of every phase of the run are written to a JSON
+	 * report in the output directory, see {@link RunReport}. With {@value #SERVE}, the statistics are served over
+	 * HTTP on localhost and the port given by {@value #PORT}{@code <port>} (8080 by default) while the files are
+	 * watched, see {@link StatisticsServer}. With {@value #PROFILES}, the items are ranked by every weight profile in
+	 * the profiles directory instead and the level curves and the item places of the profiles are dumped side by
+	 * side, see {@link WeightProfiles}.
+	 *
+	 * @param args the arguments
+	 * @throws IOException if an IO based operation failed
+	 */
 	public static void main(String[] args) throws IOException {
-		ItemStatistics.parseItems();
-		MobStatistics.parseMobs();
+		// the charts are rendered off-screen by several threads, also on machines with a display
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		if (Arrays.asList(args).contains(GENERATE)) {
+			Generator.generate(Generator.Options.parse(args), ItemStatistics.getItemsFolder(),
+					MobStatistics.getItemsFolder(), MobStatistics.getActualMobsFolder());
+			return;
+		}
+
+		int maxPoints = 0;
+		int port = 8080;
+		for (String arg : args) {
+			if (arg.startsWith(MAX_POINTS)) {
+				maxPoints = Integer.parseInt(arg.substring(MAX_POINTS.length()));
+			} else if (arg.startsWith(FORMAT)) {
+				outputFormats = OutputFormat.parse(arg.substring(FORMAT.length()));
+			} else if (arg.startsWith(PORT)) {
+				port = Integer.parseInt(arg.substring(PORT.length()));
+			}
+		}
+		ChartWriter.configure(maxPoints, Arrays.asList(args).contains(SVGZ), true);
+
+		final long start = System.nanoTime();
+		if (Arrays.asList(args).contains(PROFILES)) {
+			WeightProfiles.run();
+			RunReport.write(new File(getOutDir(), "run-" + System.currentTimeMillis() + ".json"),
+					System.nanoTime() - start);
+			return;
+		}
+
+		// the items and the mobs share nothing, they are loaded and dumped concurrently
+		final List<Dataset> datasets = Pipeline.run(List.of(ItemDataset::load, MobDataset::load));
+		RunReport.write(new File(getOutDir(), "run-" + System.currentTimeMillis() + ".json"),
+				System.nanoTime() - start);
+		if (Arrays.asList(args).contains(SERVE)) {
+			final StatisticsServer server = StatisticsServer.start((ItemDataset) datasets.get(0),
+					(MobDataset) datasets.get(1), port);
+			Watcher.watch(datasets, server::refresh);
+		} else if (Arrays.asList(args).contains(WATCH)) {
+			Watcher.watch(datasets);
+		}
 	}
 
 	public static File getOutDir() {
@@ -52,6 +125,13 @@ public class Main {
 		return outDir;
 	}
 
+	/**
+	 * @return the directory of the parse caches, see {@link ParseCache}
+	 */
+	public static File getCacheDir() {
+		return getDirectory(getCwd(), CACHE_PATH);
+	}
+
 	/**
 	 * Gets the current working directory, which is actually the parent directory of this jar
 	 * as this jar is located in folder/bin
@@ -69,38 +149,34 @@ public class Main {
 	}
 
 	/**
-	 * Reads data from the files with the given file path
+	 * Reads data from the files with the given file path. The files are parsed in parallel, see {@link FileLoader}
 	 *
 	 * @param filesPath the file path
 	 * @param map       the map to write the data to
 	 * @return the data
-	 * @throws FileNotFoundException if the file path is invalid
+	 * @throws IOException if the file path is invalid
 	 */
 	public static Map<String, ?> readFiles(final String filesPath, final Map<String, ?> map)
-			throws FileNotFoundException {
+			throws IOException {
 		final File dir = new File(filesPath);
-		File[] files = dir.listFiles(x -> x.getName().endsWith(".yml"));
-		if (files == null) {
+		if (!dir.isDirectory()) {
 			dir.mkdir();
 			return map;
 		}
 
-		for (File f : files) {
-			if (f.isDirectory()) {
-				readFiles(f.getAbsolutePath(), map);
-			} else {
-				map.putAll(yaml.load(new FileInputStream(f)));
-			}
-		}
+		map.putAll(FileLoader.load(dir, Main::readFile));
 		return map;
 	}
 
-	public static <T> T readFile(final File f) throws FileNotFoundException {
+	public static <T> T readFile(final File f) throws IOException {
 		return readFile(f, null);
 	}
 
-	public static <T> T readFile(final File f, T defaultValue) throws FileNotFoundException {
-		final T read = yaml.load(new FileInputStream(f));
+	public static <T> T readFile(final File f, T defaultValue) throws IOException {
+		final T read;
+		try (Reader reader = ChannelFileReader.open(f)) {
+			read = getYaml().load(reader);
+		}
 		return read == null ? defaultValue : read;
 	}
 
@@ -112,27 +188,17 @@ public class Main {
 		return f;
 	}
 
-	public static Yaml getYaml() {
-		return yaml;
+	/**
+	 * @return the formats the items and the mobs are dumped in
+	 */
+	public static Set<OutputFormat> getOutputFormats() {
+		return outputFormats;
 	}
 
 	/**
-	 * Dumps a chart into a file in .svg format
-	 *
-	 * @param fileName the file name
-	 * @param chart    the chart
-	 * @throws IOException if the chart could not be exported
+	 * @return the YAML instance of the current thread
 	 */
-	public static void dumpChart(String fileName, JFreeChart chart) throws IOException {
-		XYLineAndShapeRenderer renderer = (XYLineAndShapeRenderer) chart.getXYPlot().getRenderer();
-		renderer.setDefaultItemLabelsVisible(true);
-		renderer.setDefaultItemLabelGenerator(new StandardXYItemLabelGenerator("{2}"));
-
-		File file = new File(getOutDir(), fileName);
-
-		SVGGraphics2D g2 = new SVGGraphics2D(WIDTH, HEIGHT);
-		Rectangle r = new Rectangle(0, 0, WIDTH, HEIGHT);
-		chart.draw(g2, r);
-		SVGUtils.writeToSVG(file, g2.getSVGElement());
+	public static Yaml getYaml() {
+		return yaml.get();
 	}
 }
@@ -0,0 +1,87 @@
+package cz.helheim;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The formats the items and the mobs are dumped in
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public enum OutputFormat {
+	/**
+	 * Block-style YAML of the item and mob beans
+	 */
+	YAML("yml"),
+	/**
+	 * One row per item or mob, the attributes and the equipment are joined in a single column
+	 */
+	CSV("csv"),
+	/**
+	 * A binary columnar file, see {@link ColumnFile}
+	 */
+	BINARY("bin");
+
+	private final String extension;
+
+	OutputFormat(final String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the file extension
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Parses a comma separated list of formats, a format is either its name or its extension, ignoring case
+	 *
+	 * @param formats the formats, e.g. "yaml,csv,bin"
+	 * @return the formats
+	 * @throws IllegalArgumentException if a format is unknown or there is none
+	 */
+	public static Set<OutputFormat> parse(final String formats) {
+		final Set<OutputFormat> parsed = EnumSet.noneOf(OutputFormat.class);
+		for (String s : formats.split(",")) {
+			final String format = s.trim().toLowerCase(Locale.ROOT);
+			if (format.isEmpty()) {
+				continue;
+			}
+			boolean found = false;
+			for (OutputFormat f : values()) {
+				if (f.extension.equals(format) || f.name().toLowerCase(Locale.ROOT).equals(format)) {
+					parsed.add(f);
+					found = true;
+				}
+			}
+			if (!found) {
+				throw new IllegalArgumentException("Unknown output format " + s);
+			}
+		}
+		if (parsed.isEmpty()) {
+			throw new IllegalArgumentException("No output format given");
+		}
+		return parsed;
+	}
+
+	/**
+	 * Quotes the CSV field if it contains a comma, a quote or a line break
+	 *
+	 * @param field the field
+	 * @return the field
+	 */
+	public static String csvField(final String field) {
+		for (int i = 0; i < field.length(); i++) {
+			final char c = field.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return '"' + field.replace("\"", "\"\"") + '"';
+			}
+		}
+		return field;
+	}
+}
@@ -0,0 +1,330 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An on-disk cache of parsed data files, so that only the files that changed since the last run are parsed again.
+ * <p>
+ * The cached records are the records the file parser returns, e.g. the kept keys of the YAML records, not the items
+ * or mobs built from them, those depend on the weights and are built again from the records on every run.
+ * <p>
+ * A file is a cache hit if its size and last modification time are the same as when it was cached, the content is
+ * not read then. The SHA-256 of the content is only a secondary check, not part of the key: if only the modification
+ * time changed, the hash decides, so a file that is touched but not changed is not parsed again. A file rewritten
+ * with the same size and modification time is a hit, as with make. The cache file is read into memory when it is
+ * opened, not mapped, so it can be replaced when saving, and the records of a hit are decoded from its bytes.
+ * <p>
+ * The cache file consists of a header (magic, version, schema, entry count) followed by the entries, each one
+ * being the file path, size, modification time, SHA-256 of the content and the encoded records.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ParseCache {
+	private static final Logger L = LogManager.getLogger(ParseCache.class);
+	private static final int MAGIC = 0x44495343; // DISC
+	private static final int VERSION = 2;
+	private static final int HASH_LENGTH = 32;
+
+	// value tags
+	private static final byte NULL = 0, STRING = 1, INT = 2, LONG = 3, DOUBLE = 4, BOOL = 5, LIST = 6, MAP = 7,
+			BIG_INT = 8;
+
+	private final File file;
+	private final String schema;
+	private final Map<String, Entry> cached = new HashMap<>();
+	private final Map<String, Entry> used = new ConcurrentHashMap<>();
+	// the content of the cache file
+	private ByteBuffer data = null;
+
+	private ParseCache(final File file, final String schema) {
+		this.file = file;
+		this.schema = schema;
+	}
+
+	/**
+	 * Opens the cache file. A missing, outdated or corrupted cache file is the same as an empty cache.
+	 *
+	 * @param file   the cache file
+	 * @param schema describes what the parser keeps from the files, the cache is discarded if it changes
+	 * @return the cache
+	 */
+	public static ParseCache open(final File file, final String schema) {
+		final ParseCache cache = new ParseCache(file, schema);
+		if (!file.isFile()) {
+			return cache;
+		}
+
+		try {
+			cache.data = ChannelFileReader.read(file);
+			cache.readIndex();
+		} catch (IOException | RuntimeException e) {
+			L.warn(String.format("Could not read the parse cache %s, parsing all files", file), e);
+			cache.data = null;
+			cache.cached.clear();
+		}
+		return cache;
+	}
+
+	private void readIndex() {
+		final ByteBuffer buf = data.duplicate();
+		if (buf.getInt() != MAGIC || buf.getInt() != VERSION || !schema.equals(readString(buf))) {
+			return;
+		}
+
+		final int count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			final String path = readString(buf);
+			final long size = buf.getLong();
+			final long modified = buf.getLong();
+			final byte[] hash = new byte[HASH_LENGTH];
+			buf.get(hash);
+			final int length = buf.getInt();
+			cached.put(path, new Entry(size, modified, hash, buf.position(), length, null));
+			buf.position(buf.position() + length);
+		}
+	}
+
+	/**
+	 * Parses a data file from a reader
+	 *
+	 * @param <T> the value type
+	 */
+	@FunctionalInterface
+	public interface Parser<T> {
+		/**
+		 * @param reader the content of the file
+		 * @return the parsed data, key = ID, or {@code null} if the file contains no data
+		 * @throws IOException if the file could not be read
+		 */
+		Map<String, T> parse(Reader reader) throws IOException;
+	}
+
+	/**
+	 * Wraps the parser so that it returns the cached records of unchanged files and caches the records of the rest.
+	 * A file that is not a hit by its size and modification time is read once, the content hash is computed from
+	 * the same bytes the parser reads.
+	 *
+	 * @param parser the parser
+	 * @param <T>    the value type, must consist of strings, numbers, booleans, lists and maps only
+	 * @return the caching file parser, safe to use from multiple threads
+	 */
+	public <T> FileLoader.FileParser<T> wrap(final Parser<T> parser) {
+		return f -> {
+			final String path = f.getAbsolutePath();
+			final long size = f.length();
+			final long modified = f.lastModified();
+
+			final Entry entry = cached.get(path);
+			if (entry != null && entry.size == size && entry.modified == modified) {
+				return hit(path, entry, modified, entry.hash);
+			}
+
+			final ByteBuffer bytes = ChannelFileReader.read(f);
+			final byte[] hash = hash(bytes.duplicate());
+			// only the modification time changed
+			if (entry != null && entry.size == size && Arrays.equals(hash, entry.hash)) {
+				return hit(path, entry, modified, hash);
+			}
+
+			final Map<String, T> parsed;
+			try (Reader reader = ChannelFileReader.open(bytes)) {
+				parsed = parser.parse(reader);
+			}
+			final byte[] payload = encode(parsed);
+			used.put(path, new Entry(size, modified, hash, -1, payload.length, payload));
+			return parsed;
+		};
+	}
+
+	private <T> Map<String, T> hit(final String path, final Entry entry, final long modified, final byte[] hash) {
+		used.put(path, new Entry(entry.size, modified, hash, entry.offset, entry.length, null));
+		return (Map<String, T>) decode(data.duplicate().position(entry.offset));
+	}
+
+	/**
+	 * Writes the entries of the files parsed through this cache, the rest is dropped
+	 *
+	 * @throws IOException if the cache could not be written
+	 */
+	public void save() throws IOException {
+		final File tmp = new File(file.getPath() + ".tmp");
+		final List<String> paths = new ArrayList<>(used.keySet());
+		Collections.sort(paths);
+		int hits = 0;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, schema);
+			out.writeInt(paths.size());
+			for (String path : paths) {
+				final Entry e = used.get(path);
+				if (e.payload == null) {
+					hits++;
+				}
+				writeString(out, path);
+				out.writeLong(e.size);
+				out.writeLong(e.modified);
+				out.write(e.hash);
+				out.writeInt(e.length);
+				if (e.payload != null) {
+					out.write(e.payload);
+				} else {
+					final byte[] bytes = new byte[e.length];
+					data.duplicate().position(e.offset).get(bytes);
+					out.write(bytes);
+				}
+			}
+		}
+
+		data = null;
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			L.warn(String.format("Could not replace the parse cache %s", file), e);
+			tmp.delete();
+		}
+		L.info(String.format("Parse cache %s: %d of %d files were unchanged", file.getName(), hits, paths.size()));
+	}
+
+	private static byte[] hash(final ByteBuffer bytes) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(bytes);
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] encode(final Object value) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			encode(out, value);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void encode(final DataOutputStream out, final Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOL);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIG_INT);
+			writeString(out, value.toString());
+		} else if (value instanceof Collection) {
+			out.writeByte(LIST);
+			out.writeInt(((Collection<?>) value).size());
+			for (Object o : (Collection<?>) value) {
+				encode(out, o);
+			}
+		} else if (value instanceof Map) {
+			out.writeByte(MAP);
+			out.writeInt(((Map<?, ?>) value).size());
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				encode(out, e.getKey());
+				encode(out, e.getValue());
+			}
+		} else {
+			throw new IllegalArgumentException("Cannot cache " + value.getClass());
+		}
+	}
+
+	private static Object decode(final ByteBuffer buf) {
+		final byte tag = buf.get();
+		switch (tag) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(buf);
+			case INT:
+				return buf.getInt();
+			case LONG:
+				return buf.getLong();
+			case DOUBLE:
+				return buf.getDouble();
+			case BOOL:
+				return buf.get() != 0;
+			case BIG_INT:
+				return new BigInteger(readString(buf));
+			case LIST:
+				final int size = buf.getInt();
+				final List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(decode(buf));
+				}
+				return list;
+			case MAP:
+				final int entries = buf.getInt();
+				final Map<Object, Object> map = new LinkedHashMap<>();
+				for (int i = 0; i < entries; i++) {
+					final Object key = decode(buf);
+					map.put(key, decode(buf));
+				}
+				return map;
+			default:
+				throw new IllegalStateException("Corrupted parse cache, unknown tag " + tag);
+		}
+	}
+
+	private static void writeString(final DataOutputStream out, final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final ByteBuffer buf) {
+		final byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A cached file, the records are either in the read cache file or in the payload
+	 */
+	private static class Entry {
+		private final long size, modified;
+		private final byte[] hash;
+		private final int offset, length;
+		private final byte[] payload;
+
+		private Entry(final long size, final long modified, final byte[] hash, final int offset, final int length,
+		              final byte[] payload) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+			this.offset = offset;
+			this.length = length;
+			this.payload = payload;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads and dumps datasets concurrently on a shared executor. The datasets share nothing, so each one is loaded
+ * on its own thread and its outputs (the config, the data and the charts) are written as separate stages as soon
+ * as it is loaded, see {@link Dataset#dump(Executor)}.
+ * <p>
+ * A dataset that fails does not stop the others, the first failure is thrown once all of them are done and the
+ * other failures are added to it as suppressed.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Pipeline {
+	private static final Logger L = LogManager.getLogger(Pipeline.class);
+
+	/**
+	 * The loading itself runs on the fork-join pool, the pipeline threads mostly wait for it or write files
+	 */
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	private Pipeline() {
+	}
+
+	/**
+	 * Loads a dataset
+	 *
+	 * @param <T> the dataset type
+	 */
+	@FunctionalInterface
+	public interface Loader<T extends Dataset> {
+		/**
+		 * @return the loaded dataset
+		 * @throws IOException if a file could not be read
+		 */
+		T load() throws IOException;
+	}
+
+	/**
+	 * A stage that may fail with an IO exception
+	 */
+	@FunctionalInterface
+	public interface Stage {
+		/**
+		 * @throws IOException if a file could not be read or written
+		 */
+		void run() throws IOException;
+	}
+
+	/**
+	 * Loads and dumps the datasets concurrently
+	 *
+	 * @param loaders the dataset loaders
+	 * @return the loaded datasets in the order of the loaders
+	 * @throws IOException if a dataset could not be loaded or dumped
+	 */
+	public static List<Dataset> run(final List<? extends Loader<?>> loaders) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new PipelineThreadFactory());
+		final long start = System.nanoTime();
+		try {
+			final List<CompletableFuture<Dataset>> loaded = new ArrayList<>(loaders.size());
+			final List<CompletableFuture<?>> done = new ArrayList<>(loaders.size());
+			for (Loader<?> loader : loaders) {
+				final CompletableFuture<Dataset> dataset = supply(loader::load, executor);
+				loaded.add(dataset);
+				done.add(dataset.thenCompose(d -> d.dump(executor)));
+			}
+			join(done);
+
+			final List<Dataset> datasets = new ArrayList<>(loaded.size());
+			for (CompletableFuture<Dataset> dataset : loaded) {
+				datasets.add(dataset.join());
+			}
+			L.info(String.format("Loaded and dumped %d dataset(s) in %d ms", datasets.size(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+			return datasets;
+		} finally {
+			shutdown(executor);
+		}
+	}
+
+	/**
+	 * Runs the stage on the executor
+	 *
+	 * @param stage    the stage
+	 * @param executor the executor
+	 * @return the future of the stage, an IO exception completes it with an {@link UncheckedIOException}
+	 */
+	public static CompletableFuture<Void> run(final Stage stage, final Executor executor) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				stage.run();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+
+	private static <T extends Dataset> CompletableFuture<Dataset> supply(final Loader<T> loader,
+	                                                                     final Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return loader.load();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Waits for all the futures, even if some of them fail
+	 *
+	 * @param futures the futures
+	 * @throws IOException if a future failed with an IO exception, the other failures are suppressed
+	 */
+	public static void join(final List<? extends CompletableFuture<?>> futures) throws IOException {
+		Throwable failure = null;
+		for (CompletableFuture<?> future : futures) {
+			try {
+				future.join();
+			} catch (CompletionException | CancellationException e) {
+				final Throwable cause = unwrap(e);
+				if (failure == null) {
+					failure = cause;
+				} else if (failure != cause) {
+					failure.addSuppressed(cause);
+				}
+			}
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+	}
+
+	private static Throwable unwrap(Throwable e) {
+		while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+			e = e.getCause();
+		}
+		if (e instanceof UncheckedIOException) {
+			return e.getCause();
+		}
+		return e;
+	}
+
+	private static void shutdown(final ExecutorService executor) {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				L.warn("The pipeline did not finish in time, cancelling the remaining stages");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Daemon threads, so that a stuck stage does not keep the program running
+	 */
+	private static final class PipelineThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "pipeline-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
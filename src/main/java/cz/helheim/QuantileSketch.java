@@ -0,0 +1,315 @@
+package cz.helheim;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable streaming quantile sketch (KLL) of double values, for the medians and percentiles of the ranks and
+ * weights per level without keeping every value.
+ * <p>
+ * The values are kept in compactors of growing weight: the compactor h holds values standing for 2^h values each.
+ * A full compactor is sorted and every other value is promoted to the next one, so the sketch holds
+ * O(k log(n / k)) values at most, whatever the amount of values added. The promoted values are sorted already, so
+ * they are merged into the next compactor to keep it sorted and only the compactor 0 is ever sorted. Sketches of
+ * disjoint parts of the values are merged by concatenating the compactors, so the parts can be sketched by separate
+ * workers. Up to about k values the quantiles are exact, above that the rank error is about 1.7 / k.
+ * <p>
+ * Unlike the usual KLL, the compactors keep the odd or the even values alternately instead of at random, so the
+ * same values added in the same order always give the same quantiles, and the charts and dumps do not change
+ * between runs.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class QuantileSketch {
+	/**
+	 * The default accuracy parameter, the size of the largest compactor
+	 */
+	public static final int DEFAULT_K = 200;
+	private static final int MIN_CAPACITY = 8;
+	// the capacity of a compactor relative to the one above
+	private static final double DECAY = 2d / 3d;
+
+	private final int k;
+	// the compactor 0 in the order of adding, the others sorted
+	private double[][] compactors = new double[1][];
+	private int[] sizes = new int[1];
+	// compactor -> capacity, depends on the height
+	private int[] capacities = new int[1];
+	private int height = 1;
+	// the amount of values retained before the compactors are compacted
+	private int maxSize;
+	private int size = 0;
+	private long count = 0;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+	// bit h -> whether the compactor h keeps the odd values next time
+	private long flips = 0;
+	// the retained values sorted and their cumulative weights, built by the first query after a change
+	private Sorted sorted = null;
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * @param k the accuracy parameter, the size of the largest compactor
+	 */
+	public QuantileSketch(final int k) {
+		if (k < MIN_CAPACITY) {
+			throw new IllegalArgumentException(String.format("k must be at least %d", MIN_CAPACITY));
+		}
+		this.k = k;
+		this.maxSize = capacities[0] = k;
+	}
+
+	/**
+	 * Adds a value
+	 *
+	 * @param value the value, not NaN
+	 */
+	public void add(final double value) {
+		if (count++ == 0) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		append(0, value);
+		size++;
+		sorted = null;
+		if (size > maxSize) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds all values of the other sketch to this one, the other sketch is not changed
+	 *
+	 * @param other the other sketch
+	 */
+	public void merge(final QuantileSketch other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			min = other.min;
+			max = other.max;
+		} else {
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+		count += other.count;
+		while (height < other.height) {
+			grow();
+		}
+		for (int i = 0; i < other.sizes[0]; i++) {
+			append(0, other.compactors[0][i]);
+		}
+		for (int h = 1; h < other.height; h++) {
+			mergeInto(h, other.compactors[h], 0, 1, other.sizes[h]);
+		}
+		size += other.size;
+		sorted = null;
+		compress();
+	}
+
+	/**
+	 * @return a copy of this sketch, independent of later changes of this one
+	 */
+	public QuantileSketch copy() {
+		final QuantileSketch copy = new QuantileSketch(k);
+		copy.merge(this);
+		return copy;
+	}
+
+	/**
+	 * @return the amount of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the amount of values retained, at most O(k log(n / k))
+	 */
+	public int getRetained() {
+		return size;
+	}
+
+	/**
+	 * @param q the quantile, between 0 and 1, e.g. 0.5 for the median
+	 * @return the smallest value such that at least q of the values are lower or equal, the exact min at 0 and max
+	 * at 1, or NaN if there are no values
+	 */
+	public double getQuantile(final double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("The quantile must be between 0 and 1");
+		}
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (q == 0) {
+			return min;
+		}
+		if (q == 1) {
+			return max;
+		}
+		Sorted sorted = this.sorted;
+		if (sorted == null) {
+			sorted = this.sorted = sort();
+		}
+		final long rank = Math.max(1, (long) Math.ceil(q * count));
+		int i = Arrays.binarySearch(sorted.ranks, rank);
+		i = i < 0 ? -i - 1 : i;
+		return sorted.values[Math.min(i, sorted.values.length - 1)];
+	}
+
+	private void append(final int h, final double value) {
+		double[] compactor = compactors[h];
+		if (compactor == null) {
+			compactor = compactors[h] = new double[Math.min(capacities[h], 16)];
+		} else if (sizes[h] == compactor.length) {
+			compactor = compactors[h] = Arrays.copyOf(compactor, sizes[h] * 2);
+		}
+		compactor[sizes[h]++] = value;
+	}
+
+	/**
+	 * Merges n sorted values, src[from], src[from + step], ..., into the sorted compactor h, from the back so that
+	 * nothing is copied twice
+	 */
+	private void mergeInto(final int h, final double[] src, final int from, final int step, final int n) {
+		if (n == 0) {
+			return;
+		}
+		double[] compactor = compactors[h];
+		final int size = sizes[h];
+		if (compactor == null) {
+			compactor = compactors[h] = new double[Math.max(n, Math.min(capacities[h], 16))];
+		} else if (size + n > compactor.length) {
+			compactor = compactors[h] = Arrays.copyOf(compactor, Math.max(size + n, size * 2));
+		}
+		int a = size - 1;
+		int b = n - 1;
+		for (int i = size + n - 1; b >= 0; i--) {
+			final double value = src[from + b * step];
+			if (a >= 0 && compactor[a] > value) {
+				compactor[i] = compactor[a--];
+			} else {
+				compactor[i] = value;
+				b--;
+			}
+		}
+		sizes[h] = size + n;
+	}
+
+	private void grow() {
+		if (height == compactors.length) {
+			compactors = Arrays.copyOf(compactors, height * 2);
+			sizes = Arrays.copyOf(sizes, height * 2);
+			capacities = Arrays.copyOf(capacities, height * 2);
+		}
+		height++;
+		maxSize = 0;
+		double capacity = k;
+		for (int h = height - 1; h >= 0; h--) {
+			capacities[h] = Math.max(MIN_CAPACITY, (int) Math.ceil(capacity));
+			maxSize += capacities[h];
+			capacity *= DECAY;
+		}
+	}
+
+	/**
+	 * Compacts the lowest full compactors until the sketch fits
+	 */
+	private void compress() {
+		while (size > maxSize) {
+			int h = 0;
+			while (sizes[h] < capacities[h]) {
+				h++;
+			}
+			if (h + 1 == height) {
+				grow();
+			}
+			compact(h);
+		}
+	}
+
+	/**
+	 * Promotes every other value of the compactor h to the compactor h + 1, the highest value is kept if the amount
+	 * is odd
+	 */
+	private void compact(final int h) {
+		final double[] compactor = compactors[h];
+		final int n = sizes[h];
+		if (h == 0) {
+			Arrays.sort(compactor, 0, n);
+		}
+		final int even = n & ~1;
+		final int offset = (int) (flips >>> h) & 1;
+		flips ^= 1L << h;
+		mergeInto(h + 1, compactor, offset, 2, even / 2);
+		if (even < n) {
+			compactor[0] = compactor[n - 1];
+		}
+		sizes[h] = n - even;
+		size -= even / 2;
+	}
+
+	/**
+	 * Merges the sorted compactors into one sorted array of values and their cumulative weights
+	 */
+	private Sorted sort() {
+		double[] values = new double[0];
+		long[] weights = new long[0];
+		for (int h = 0; h < height; h++) {
+			final int n = sizes[h];
+			if (n == 0) {
+				continue;
+			}
+			final double[] compactor;
+			if (h == 0) {
+				compactor = Arrays.copyOf(compactors[0], n);
+				Arrays.sort(compactor);
+			} else {
+				compactor = compactors[h];
+			}
+			final double[] mergedValues = new double[values.length + n];
+			final long[] mergedWeights = new long[values.length + n];
+			int a = 0;
+			int b = 0;
+			for (int i = 0; i < mergedValues.length; i++) {
+				if (b == n || (a < values.length && values[a] <= compactor[b])) {
+					mergedValues[i] = values[a];
+					mergedWeights[i] = weights[a++];
+				} else {
+					mergedValues[i] = compactor[b++];
+					mergedWeights[i] = 1L << h;
+				}
+			}
+			values = mergedValues;
+			weights = mergedWeights;
+		}
+		for (int i = 1; i < weights.length; i++) {
+			weights[i] += weights[i - 1];
+		}
+		return new Sorted(values, weights);
+	}
+
+	/**
+	 * The retained values sorted and their cumulative weights, published at once through final fields, so that
+	 * concurrent queries of an unchanged sketch (e.g. a dump and a chart of the same levels) never see the values
+	 * without the weights
+	 */
+	private static final class Sorted {
+		private final double[] values;
+		private final long[] ranks;
+
+		private Sorted(final double[] values, final long[] ranks) {
+			this.values = values;
+			this.ranks = ranks;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package cz.helheim;
+
+import jdk.jfr.Event;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time, the throughput and the allocations of every pipeline phase, summed over all threads and written as a
+ * JSON report at the end of the run. Every phase is timed by a {@link Span}, which also times its flight recorder
+ * event, see {@link Events}.
+ * <p>
+ * The allocations are measured per thread, so a span must end on the thread it started on. The phases run on
+ * more threads at once, so the time of a phase may be longer than the run.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RunReport {
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+	private static final Map<Stage, Totals> TOTALS = new EnumMap<>(Stage.class);
+
+	static {
+		for (Stage stage : Stage.values()) {
+			TOTALS.put(stage, new Totals());
+		}
+	}
+
+	private RunReport() {
+	}
+
+	/**
+	 * The pipeline phases
+	 */
+	public enum Stage {
+		/**
+		 * A data file was loaded, the items are the records, the bytes are the file size
+		 */
+		LOAD,
+		/**
+		 * Lore or enchantments were scanned, the items are the scanned lines
+		 */
+		LORE,
+		/**
+		 * Items were ranked
+		 */
+		RANK,
+		/**
+		 * Items were checked against the blacklist
+		 */
+		FILTER,
+		/**
+		 * The equipment of mobs was resolved, the items are the mobs
+		 */
+		EQUIPMENT,
+		/**
+		 * Items or mobs were dumped, the items are the entries
+		 */
+		DUMP,
+		/**
+		 * A chart was exported, the items are the points
+		 */
+		CHART,
+		/**
+		 * Items were ranked by weight profiles, the items are the items times the profiles
+		 */
+		PROFILES
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+		if (!sunThreads.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!sunThreads.isThreadAllocatedMemoryEnabled()) {
+			sunThreads.setThreadAllocatedMemoryEnabled(true);
+		}
+		return sunThreads;
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or 0 if not supported
+	 */
+	private static long allocated() {
+		if (THREADS == null) {
+			return 0;
+		}
+		return Math.max(0, THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()));
+	}
+
+	/**
+	 * Starts timing a phase and begins its event
+	 *
+	 * @param stage the phase
+	 * @param event the event, its fields are set and it is committed by the caller after the span ends
+	 * @return the span
+	 */
+	public static Span start(final Stage stage, final Event event) {
+		return new Span(stage, event);
+	}
+
+	/**
+	 * Writes the report as JSON, the totals of the run first and then the totals of every phase
+	 *
+	 * @param f         the file
+	 * @param wallNanos the duration of the run
+	 * @throws IOException if the report could not be written
+	 */
+	public static void write(final File f, final long wallNanos) throws IOException {
+		final Totals load = TOTALS.get(Stage.LOAD);
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("  \"wallMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(wallNanos)).append(",\n");
+		sb.append("  \"files\": ").append(load.calls.sum()).append(",\n");
+		sb.append("  \"bytesRead\": ").append(load.bytes.sum()).append(",\n");
+		sb.append("  \"filesPerSecond\": ").append(perSecond(load.calls.sum(), wallNanos)).append(",\n");
+		sb.append("  \"items\": ").append(TOTALS.get(Stage.RANK).items.sum()).append(",\n");
+		sb.append("  \"itemsPerSecond\": ").append(perSecond(TOTALS.get(Stage.RANK).items.sum(), wallNanos))
+				.append(",\n");
+		sb.append("  \"mobs\": ").append(TOTALS.get(Stage.EQUIPMENT).items.sum()).append(",\n");
+		sb.append("  \"mobsPerSecond\": ").append(perSecond(TOTALS.get(Stage.EQUIPMENT).items.sum(), wallNanos))
+				.append(",\n");
+		sb.append("  \"allocationsMeasured\": ").append(THREADS != null).append(",\n");
+		sb.append("  \"stages\": {");
+		boolean first = true;
+		for (Map.Entry<Stage, Totals> e : TOTALS.entrySet()) {
+			final Totals totals = e.getValue();
+			final long nanos = totals.nanos.sum();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    \"").append(e.getKey().name().toLowerCase(Locale.ROOT)).append("\": {")
+					.append("\"calls\": ").append(totals.calls.sum())
+					.append(", \"items\": ").append(totals.items.sum())
+					.append(", \"bytes\": ").append(totals.bytes.sum())
+					.append(", \"millis\": ").append(TimeUnit.NANOSECONDS.toMillis(nanos))
+					.append(", \"itemsPerSecond\": ").append(perSecond(totals.items.sum(), nanos))
+					.append(", \"allocatedBytes\": ").append(totals.allocated.sum())
+					.append('}');
+		}
+		sb.append("\n  }\n}\n");
+
+		try (ChannelOutput out = new ChannelOutput(f)) {
+			out.putText(sb);
+		}
+	}
+
+	private static String perSecond(final long count, final long nanos) {
+		if (nanos <= 0) {
+			return "0";
+		}
+		return String.format(Locale.ROOT, "%.1f", count * 1e9 / nanos);
+	}
+
+	/**
+	 * A running phase
+	 */
+	public static final class Span {
+		private final Stage stage;
+		private final Event event;
+		private final long start;
+		private final long allocated;
+
+		private Span(final Stage stage, final Event event) {
+			this.stage = stage;
+			this.event = event;
+			this.allocated = allocated();
+			event.begin();
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Ends the phase and its event
+		 *
+		 * @param items the amount of things processed, see {@link Stage}
+		 * @param bytes the amount of bytes read
+		 */
+		public void end(final long items, final long bytes) {
+			final long nanos = System.nanoTime() - start;
+			event.end();
+			final Totals totals = TOTALS.get(stage);
+			totals.calls.increment();
+			totals.items.add(items);
+			totals.bytes.add(bytes);
+			totals.nanos.add(nanos);
+			totals.allocated.add(allocated() - allocated);
+		}
+	}
+
+	private static class Totals {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder items = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder allocated = new LongAdder();
+	}
+}
@@ -0,0 +1,581 @@
+package cz.helheim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cz.helheim.items.Attribute;
+import cz.helheim.items.Item;
+import cz.helheim.items.ItemDataset;
+import cz.helheim.items.ItemStatistics;
+import cz.helheim.items.ItemTable;
+import cz.helheim.mobs.Enchantment;
+import cz.helheim.mobs.Mob;
+import cz.helheim.mobs.MobDataset;
+import cz.helheim.mobs.MobItem;
+import cz.helheim.mobs.MobStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jfree.chart.JFreeChart;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A local HTTP server of the loaded statistics, so that the level curves and the items and the mobs can be looked up
+ * without running the whole pipeline again. The endpoints are
+ * <ul>
+ *     <li>{@code GET /items/levels}, {@code GET /mobs/levels} - the count, mean, min, p10, median, p90 and max of
+ *     the ranks or the weights per level</li>
+ *     <li>{@code GET /items?minLvl=20&maxLvl=30&attribute=Vyhýbání&order=score&limit=100} - the items, the
+ *     attribute may repeat, the order is level (default), score or score_ascending, see {@link LevelIndex}</li>
+ *     <li>{@code GET /mobs?minLvl=20&maxLvl=30&equipment=sword&order=score&limit=100} - the mobs</li>
+ *     <li>{@code GET /items/<id>}, {@code GET /mobs/<id>} - a single item or mob</li>
+ *     <li>{@code GET /charts/items.svg}, {@code GET /charts/mobs.svg} - the charts</li>
+ * </ul>
+ * The server answers from immutable views of the datasets, a view is replaced as a whole when its dataset changes,
+ * see {@link #refresh(Set)}, so the readers never lock anything but the response cache. The responses are cached
+ * by their URL until the dataset they were made from changes, up to {@link #CACHE_BYTES} in total, the least
+ * recently used first out. Every response has an ETag, a request with a matching If-None-Match gets 304.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StatisticsServer {
+	private static final Logger L = LogManager.getLogger(StatisticsServer.class);
+	private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/**
+	 * The most bytes of responses cached
+	 */
+	private static final long CACHE_BYTES = 32L << 20;
+	/**
+	 * The most items or mobs in a response if the query has no limit
+	 */
+	private static final int DEFAULT_LIMIT = 100;
+	private static final String JSON = "application/json; charset=utf-8";
+	private static final String SVG = "image/svg+xml";
+	private static final String ITEMS = "/items";
+	private static final String MOBS = "/mobs";
+	private static final String LEVELS = "/levels";
+
+	private final ItemDataset itemDataset;
+	private final MobDataset mobDataset;
+	private final AtomicLong versions = new AtomicLong();
+	private final ResponseCache cache = new ResponseCache(CACHE_BYTES);
+	private volatile ItemView items;
+	private volatile MobView mobs;
+
+	private StatisticsServer(final ItemDataset itemDataset, final MobDataset mobDataset) {
+		this.itemDataset = itemDataset;
+		this.mobDataset = mobDataset;
+		this.items = new ItemView(versions.incrementAndGet(), itemDataset);
+		this.mobs = new MobView(versions.incrementAndGet(), mobDataset);
+	}
+
+	/**
+	 * Starts serving the datasets on the loopback address
+	 *
+	 * @param items the loaded items
+	 * @param mobs  the loaded mobs
+	 * @param port  the port
+	 * @return the server, see {@link #refresh(Set)}
+	 * @throws IOException if the server could not be started
+	 */
+	public static StatisticsServer start(final ItemDataset items, final MobDataset mobs, final int port)
+			throws IOException {
+		final StatisticsServer statistics = new StatisticsServer(items, mobs);
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+				0);
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+			final Thread thread = new Thread(r, "server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext("/", statistics::handle);
+		server.start();
+		L.info(String.format("Serving the statistics on http://%s:%d/", server.getAddress().getHostString(),
+				server.getAddress().getPort()));
+		return statistics;
+	}
+
+	/**
+	 * Replaces the views of the datasets that changed and drops their cached responses. Must be called on the
+	 * thread that changes the datasets, see {@link Watcher.Listener}.
+	 *
+	 * @param updated the datasets that changed
+	 */
+	public void refresh(final Set<Dataset> updated) {
+		if (updated.contains(itemDataset)) {
+			items = new ItemView(versions.incrementAndGet(), itemDataset);
+			cache.invalidate(ITEMS);
+		}
+		if (updated.contains(mobDataset)) {
+			mobs = new MobView(versions.incrementAndGet(), mobDataset);
+			cache.invalidate(MOBS);
+		}
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		try {
+			final String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				send(exchange, Response.error(405, "Only GET and HEAD are supported"));
+				return;
+			}
+
+			final String path = exchange.getRequestURI().getPath();
+			final String query = exchange.getRequestURI().getRawQuery();
+			final String key = query == null ? path : path + '?' + query;
+			Response response = cache.get(key);
+			if (response == null || response.version != currentVersion(response.dataset)) {
+				response = respond(path, parseQuery(query));
+				if (response.status == 200) {
+					cache.put(key, response);
+				}
+			}
+
+			final String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+			if (response.etag != null && response.etag.equals(etag)) {
+				exchange.getResponseHeaders().set("ETag", response.etag);
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+			send(exchange, response);
+		} catch (IllegalArgumentException e) {
+			send(exchange, Response.error(400, e.getMessage()));
+		} catch (RuntimeException e) {
+			L.error(String.format("Could not answer %s", exchange.getRequestURI()), e);
+			send(exchange, Response.error(500, "Internal error"));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private long currentVersion(final String dataset) {
+		return dataset.equals(ITEMS) ? items.version : mobs.version;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if a query parameter is invalid
+	 */
+	private Response respond(final String path, final Map<String, List<String>> params) {
+		final ItemView items = this.items;
+		final MobView mobs = this.mobs;
+		switch (path) {
+			case ITEMS + LEVELS:
+				return Response.json(ITEMS, items.version, itemLevels(items.levels));
+			case MOBS + LEVELS:
+				return Response.json(MOBS, mobs.version, mobLevels(mobs.levels));
+			case ITEMS:
+				return Response.json(ITEMS, items.version, items(query(items.index, params, "attribute")));
+			case MOBS:
+				return Response.json(MOBS, mobs.version, mobs(query(mobs.index, params, "equipment")));
+			case "/charts/items.svg":
+				return chart(ITEMS, items.version, ItemStatistics.createChart(items.levels));
+			case "/charts/mobs.svg":
+				return chart(MOBS, mobs.version, MobStatistics.createChart(mobs.levels));
+			default:
+				break;
+		}
+
+		if (path.startsWith(ITEMS + '/')) {
+			final Integer row = items.rows.get(path.substring(ITEMS.length() + 1));
+			return row == null
+					? Response.error(404, "No such item")
+					: Response.json(ITEMS, items.version, item(new StringBuilder(), items.index.get(row)));
+		}
+		if (path.startsWith(MOBS + '/')) {
+			final Integer index = mobs.indices.get(path.substring(MOBS.length() + 1));
+			return index == null
+					? Response.error(404, "No such mob")
+					: Response.json(MOBS, mobs.version, mob(new StringBuilder(), mobs.index.get(index)));
+		}
+		return Response.error(404, "Unknown path " + path);
+	}
+
+	private static <T> List<T> query(final LevelIndex<T> index, final Map<String, List<String>> params,
+	                                 final String keyParam) {
+		final LevelIndex<T>.Query query = index.query()
+				.levels(intParam(params, "minLvl", Integer.MIN_VALUE), intParam(params, "maxLvl", Integer.MAX_VALUE))
+				.limit(intParam(params, "limit", DEFAULT_LIMIT));
+		for (String key : params.getOrDefault(keyParam, Collections.emptyList())) {
+			query.with(key);
+		}
+		final String order = param(params, "order");
+		if (order != null) {
+			try {
+				query.orderBy(LevelIndex.Order.valueOf(order.toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown order " + order);
+			}
+		}
+		return query.list();
+	}
+
+	private static Response chart(final String dataset, final long version, final JFreeChart chart) {
+		if (chart == null) {
+			return Response.error(404, "Nothing to chart");
+		}
+		return new Response(200, SVG, ChartWriter.render(chart).getBytes(StandardCharsets.UTF_8), dataset, version);
+	}
+
+	private static String itemLevels(final LevelAggregate levels) {
+		final String[] keys = {"minRank", "avgRank", "maxRank"};
+		final StringBuilder sb = new StringBuilder("{\"levels\":[");
+		boolean first = true;
+		for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+			if (levels.getCount(ItemTable.AVG_RANK, lvl) == 0) {
+				continue;
+			}
+			sb.append(first ? "" : ",").append("{\"lvl\":").append(lvl);
+			for (int kind = 0; kind < ItemTable.RANKS; kind++) {
+				sb.append(",\"").append(keys[kind]).append("\":");
+				summary(sb, levels.summarize(kind, lvl));
+			}
+			sb.append('}');
+			first = false;
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String mobLevels(final LevelAggregate levels) {
+		final StringBuilder sb = new StringBuilder("{\"levels\":[");
+		boolean first = true;
+		for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+			if (levels.getCount(MobStatistics.WEIGHT, lvl) == 0) {
+				continue;
+			}
+			sb.append(first ? "" : ",").append("{\"lvl\":").append(lvl).append(",\"weight\":");
+			summary(sb, levels.summarize(MobStatistics.WEIGHT, lvl));
+			sb.append('}');
+			first = false;
+		}
+		return sb.append("]}").toString();
+	}
+
+	/**
+	 * Appends the statistics of a level, see {@link LevelAggregate#summarize(int, int)}
+	 */
+	private static void summary(final StringBuilder sb, final Map<String, Object> summary) {
+		sb.append('{');
+		boolean first = true;
+		for (Map.Entry<String, Object> e : summary.entrySet()) {
+			sb.append(first ? "" : ",");
+			string(sb, e.getKey());
+			sb.append(':');
+			if (e.getValue() instanceof Long) {
+				sb.append(e.getValue());
+			} else {
+				number(sb, ((Number) e.getValue()).doubleValue());
+			}
+			first = false;
+		}
+		sb.append('}');
+	}
+
+	private static String items(final List<Item> items) {
+		final StringBuilder sb = new StringBuilder("{\"count\":").append(items.size()).append(",\"items\":[");
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			item(sb, items.get(i));
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String item(final StringBuilder sb, final Item item) {
+		sb.append("{\"id\":");
+		string(sb, item.getItemId());
+		sb.append(",\"lvl\":").append(item.getLvl()).append(",\"minRank\":");
+		number(sb, item.getMinRank());
+		sb.append(",\"avgRank\":");
+		number(sb, item.getAvgRank());
+		sb.append(",\"maxRank\":");
+		number(sb, item.getMaxRank());
+		sb.append(",\"attributes\":[");
+		boolean first = true;
+		for (Attribute a : item.getAttributes()) {
+			sb.append(first ? "{\"name\":" : ",{\"name\":");
+			string(sb, a.getAttribute());
+			sb.append(",\"min\":").append(a.getMin()).append(",\"max\":").append(a.getMax()).append('}');
+			first = false;
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String mobs(final List<Mob> mobs) {
+		final StringBuilder sb = new StringBuilder("{\"count\":").append(mobs.size()).append(",\"mobs\":[");
+		for (int i = 0; i < mobs.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			mob(sb, mobs.get(i));
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String mob(final StringBuilder sb, final Mob mob) {
+		sb.append("{\"id\":");
+		string(sb, mob.getMobId());
+		sb.append(",\"name\":");
+		string(sb, mob.getMobName());
+		sb.append(",\"lvl\":").append(mob.getLvl())
+				.append(",\"health\":").append(mob.getHealth())
+				.append(",\"damage\":").append(mob.getDamage())
+				.append(",\"weight\":");
+		number(sb, mob.getWeight());
+		sb.append(",\"equipment\":[");
+		boolean first = true;
+		for (MobItem eq : mob.getEquipment()) {
+			sb.append(first ? "{\"id\":" : ",{\"id\":");
+			string(sb, eq.getId());
+			sb.append(",\"itemId\":").append(eq.getItemId()).append(",\"weight\":");
+			number(sb, eq.getWeight());
+			sb.append(",\"totalWeight\":");
+			number(sb, eq.getTotalWeight());
+			sb.append(",\"enchantments\":[");
+			boolean firstEnchantment = true;
+			for (Enchantment e : eq.getEnchantments()) {
+				sb.append(firstEnchantment ? "{\"id\":" : ",{\"id\":");
+				string(sb, e.getEnchantmentId());
+				sb.append(",\"level\":").append(e.getLevel()).append(",\"weight\":");
+				number(sb, e.getWeight());
+				sb.append('}');
+				firstEnchantment = false;
+			}
+			sb.append("]}");
+			first = false;
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static void number(final StringBuilder sb, final double d) {
+		// JSON has no NaN nor infinity
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			sb.append("null");
+		} else {
+			sb.append(d);
+		}
+	}
+
+	private static void string(final StringBuilder sb, final String s) {
+		if (s == null) {
+			sb.append("null");
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+					break;
+			}
+		}
+		sb.append('"');
+	}
+
+	private static Map<String, List<String>> parseQuery(final String query) {
+		final Map<String, List<String>> params = new HashMap<>();
+		if (query == null || query.isEmpty()) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			final int eq = pair.indexOf('=');
+			final String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+			final String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+			params.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+		}
+		return params;
+	}
+
+	private static String param(final Map<String, List<String>> params, final String name) {
+		final List<String> values = params.get(name);
+		return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+	}
+
+	private static int intParam(final Map<String, List<String>> params, final String name, final int defaultValue) {
+		final String value = param(params, name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("%s must be a number", name));
+		}
+	}
+
+	private static void send(final HttpExchange exchange, final Response response) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", response.contentType);
+		if (response.etag != null) {
+			exchange.getResponseHeaders().set("ETag", response.etag);
+			// the clients revalidate, the data may change any time
+			exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		}
+		if (exchange.getRequestMethod().equals("HEAD")) {
+			exchange.sendResponseHeaders(response.status, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(response.status, response.body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response.body);
+		}
+	}
+
+	/**
+	 * The ranked items as they were when the view was made
+	 */
+	private static final class ItemView {
+		private final long version;
+		// has its own copy of the attribute names, the dictionary may intern new keys meanwhile
+		private final LevelIndex<Item> index;
+		private final LevelAggregate levels;
+		// item ID -> row, the first item if the ID is in more files
+		private final Map<String, Integer> rows = new HashMap<>();
+
+		private ItemView(final long version, final ItemDataset dataset) {
+			this.version = version;
+			this.index = dataset.getIndex();
+			this.levels = dataset.getLevels().copy();
+			final ItemTable table = dataset.getTable();
+			for (int row = 0; row < table.size(); row++) {
+				rows.putIfAbsent(table.getItemId(row), row);
+			}
+		}
+	}
+
+	/**
+	 * The mobs as they were when the view was made
+	 */
+	private static final class MobView {
+		private final long version;
+		private final LevelIndex<Mob> index;
+		private final LevelAggregate levels;
+		// mob ID -> index in the mob index
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		private MobView(final long version, final MobDataset dataset) {
+			this.version = version;
+			this.index = dataset.getIndex();
+			this.levels = dataset.getLevels().copy();
+			for (int i = 0; i < index.size(); i++) {
+				indices.putIfAbsent(index.get(i).getMobId(), i);
+			}
+		}
+	}
+
+	private static final class Response {
+		private final int status;
+		private final String contentType;
+		private final byte[] body;
+		// the path prefix of the dataset the response was made from and the version of its view
+		private final String dataset;
+		private final long version;
+		private final String etag;
+
+		private Response(final int status, final String contentType, final byte[] body, final String dataset,
+		                 final long version) {
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+			this.dataset = dataset;
+			this.version = version;
+			if (dataset == null) {
+				this.etag = null;
+			} else {
+				final CRC32 crc = new CRC32();
+				crc.update(body);
+				this.etag = String.format("\"%d-%08x\"", version, crc.getValue());
+			}
+		}
+
+		private static Response json(final String dataset, final long version, final String json) {
+			return new Response(200, JSON, json.getBytes(StandardCharsets.UTF_8), dataset, version);
+		}
+
+		private static Response error(final int status, final String message) {
+			final StringBuilder sb = new StringBuilder("{\"error\":");
+			string(sb, message);
+			sb.append('}');
+			return new Response(status, JSON, sb.toString().getBytes(StandardCharsets.UTF_8), null, 0);
+		}
+	}
+
+	/**
+	 * The responses by URL, the least recently used are evicted once the bodies are larger than the limit
+	 */
+	private static final class ResponseCache {
+		private final long maxBytes;
+		private final LinkedHashMap<String, Response> responses = new LinkedHashMap<>(64, 0.75f, true);
+		private long bytes = 0;
+
+		private ResponseCache(final long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		private synchronized Response get(final String key) {
+			return responses.get(key);
+		}
+
+		private synchronized void put(final String key, final Response response) {
+			if (response.body.length > maxBytes) {
+				return;
+			}
+			final Response previous = responses.put(key, response);
+			if (previous != null) {
+				bytes -= previous.body.length;
+			}
+			bytes += response.body.length;
+
+			final Iterator<Response> it = responses.values().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				bytes -= it.next().body.length;
+				it.remove();
+			}
+		}
+
+		/**
+		 * Drops the responses made from the dataset
+		 */
+		private synchronized void invalidate(final String dataset) {
+			final Iterator<Response> it = responses.values().iterator();
+			while (it.hasNext()) {
+				final Response response = it.next();
+				if (response.dataset.equals(dataset)) {
+					bytes -= response.body.length;
+					it.remove();
+				}
+			}
+		}
+	}
+}
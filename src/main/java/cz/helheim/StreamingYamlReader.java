@@ -0,0 +1,379 @@
+package cz.helheim;
+
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the data files through the SnakeYAML event API instead of loading the whole document.
+ * <p>
+ * The data files are a mapping of key = ID, value = a mapping of properties. Only the properties we care about
+ * are materialized, every other subtree is skipped as the events stream by.
+ * <p>
+ * Anchors and merge keys resolve the same way as with {@link org.yaml.snakeyaml.Yaml#load(Reader)}. A node with an
+ * anchor is materialized even inside a skipped subtree, and a record with an anchor keeps all of its properties,
+ * so that a later alias or merge key ({@code <<: *base}) can use it. Only the anchored nodes cost the memory of a
+ * full load, the data files without anchors are skipped as before. A merge key copies the entries of the merged
+ * mapping(s) that the mapping does not define itself, the earlier merged mappings take precedence.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StreamingYamlReader {
+	private static final Resolver RESOLVER = new Resolver();
+
+	private final Parser parser;
+	private final Set<String> keys;
+	private final Map<String, Object> anchors = new HashMap<>();
+
+	private StreamingYamlReader(final Reader reader, final Set<String> keys) {
+		this.parser = new ParserImpl(new StreamReader(reader));
+		this.keys = keys;
+	}
+
+	/**
+	 * Reads the records of a file and keeps only the given properties
+	 *
+	 * @param f    the file
+	 * @param keys the properties to keep
+	 * @return the records, key = ID, value = the kept properties
+	 * @throws IOException if the file could not be read
+	 */
+	public static Map<String, Map<String, Object>> read(final File f, final Set<String> keys) throws IOException {
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		read(f, keys, records::put);
+		return records;
+	}
+
+	/**
+	 * Reads the records and keeps only the given properties
+	 *
+	 * @param reader the YAML source
+	 * @param keys   the properties to keep
+	 * @return the records, key = ID, value = the kept properties
+	 */
+	public static Map<String, Map<String, Object>> read(final Reader reader, final Set<String> keys) {
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		read(reader, keys, records::put);
+		return records;
+	}
+
+	/**
+	 * Reads the records of a file and passes each one to the consumer as soon as it is parsed
+	 *
+	 * @param f        the file
+	 * @param keys     the properties to keep
+	 * @param consumer the record consumer, receives the ID and the kept properties
+	 * @throws IOException if the file could not be read
+	 */
+	public static void read(final File f, final Set<String> keys,
+	                        final BiConsumer<String, Map<String, Object>> consumer) throws IOException {
+		try (Reader reader = ChannelFileReader.open(f)) {
+			read(reader, keys, consumer);
+		}
+	}
+
+	/**
+	 * Reads the records and passes each one to the consumer as soon as it is parsed
+	 *
+	 * @param reader   the YAML source
+	 * @param keys     the properties to keep
+	 * @param consumer the record consumer, receives the ID and the kept properties
+	 */
+	public static void read(final Reader reader, final Set<String> keys,
+	                        final BiConsumer<String, Map<String, Object>> consumer) {
+		new StreamingYamlReader(reader, keys).readStream(consumer);
+	}
+
+	private void readStream(final BiConsumer<String, Map<String, Object>> consumer) {
+		while (!parser.checkEvent(Event.ID.StreamEnd)) {
+			final Event e = parser.getEvent();
+			if (!e.is(Event.ID.DocumentStart)) {
+				continue;
+			}
+
+			if (parser.checkEvent(Event.ID.MappingStart)) {
+				parser.getEvent();
+				readRecords(consumer);
+			} else {
+				skip();
+			}
+			// document end
+			parser.getEvent();
+		}
+	}
+
+	private void readRecords(final BiConsumer<String, Map<String, Object>> consumer) {
+		while (!parser.checkEvent(Event.ID.MappingEnd)) {
+			final Object id = readNode();
+			if (id == null || id instanceof Collection || id instanceof Map) {
+				skip();
+				continue;
+			}
+
+			final Event next = parser.peekEvent();
+			if (next.is(Event.ID.MappingStart) && ((NodeEvent) next).getAnchor() == null) {
+				consumer.accept(String.valueOf(id), readRecord());
+			} else if (next.is(Event.ID.MappingStart) || next.is(Event.ID.Alias)) {
+				// an anchored record may be used by other records, so all of its properties are materialized
+				final Object value = readNode();
+				if (value instanceof Map) {
+					final Map<String, Object> record = new LinkedHashMap<>();
+					((Map<?, ?>) value).forEach((key, v) -> {
+						if (keys.contains(key)) {
+							record.put((String) key, v);
+						}
+					});
+					consumer.accept(String.valueOf(id), record);
+				}
+			} else {
+				skip();
+			}
+		}
+		parser.getEvent();
+	}
+
+	/**
+	 * Reads the next mapping as a record with only the properties we care about
+	 *
+	 * @return the kept properties
+	 */
+	private Map<String, Object> readRecord() {
+		parser.getEvent();
+		final Map<String, Object> record = new LinkedHashMap<>();
+		while (!parser.checkEvent(Event.ID.MappingEnd)) {
+			if (isMergeKey()) {
+				merge(parser.getEvent(), readNode(), (key, v) -> {
+					if (keys.contains(key) && !record.containsKey(key)) {
+						record.put((String) key, v);
+					}
+				});
+				continue;
+			}
+
+			final Object key = readNode();
+			if (keys.contains(key)) {
+				record.put((String) key, readNode());
+			} else {
+				skip();
+			}
+		}
+		parser.getEvent();
+		return record;
+	}
+
+	/**
+	 * Skips the next node and all of its children, except for the nodes with an anchor, which are materialized
+	 */
+	private void skip() {
+		final Event next = parser.peekEvent();
+		if (!next.is(Event.ID.Alias) && ((NodeEvent) next).getAnchor() != null) {
+			readNode();
+			return;
+		}
+
+		final Event e = parser.getEvent();
+		if (e.is(Event.ID.MappingStart) || e.is(Event.ID.SequenceStart)) {
+			while (!parser.checkEvent(Event.ID.MappingEnd) && !parser.checkEvent(Event.ID.SequenceEnd)) {
+				skip();
+			}
+			parser.getEvent();
+		}
+	}
+
+	/**
+	 * @return whether the next node is a merge key ({@code <<})
+	 */
+	private boolean isMergeKey() {
+		final Event e = parser.peekEvent();
+		return e.is(Event.ID.Scalar) && Tag.MERGE.equals(resolve((ScalarEvent) e));
+	}
+
+	/**
+	 * Merges the value of a merge key the way the SnakeYAML constructor does
+	 *
+	 * @param key   the merge key event
+	 * @param value the mapping or the list of mappings to merge
+	 * @param put   puts an entry unless the mapping already has the key
+	 * @throws YAMLException if the value is not a mapping or a list of mappings
+	 */
+	private static void merge(final Event key, final Object value, final BiConsumer<Object, Object> put) {
+		if (value instanceof Map) {
+			((Map<?, ?>) value).forEach(put);
+			return;
+		}
+		if (value instanceof List && ((List<?>) value).stream().allMatch(x -> x instanceof Map)) {
+			for (Object map : (List<?>) value) {
+				((Map<?, ?>) map).forEach(put);
+			}
+			return;
+		}
+		throw new YAMLException("Expected a mapping or a list of mappings for merging" + key.getStartMark());
+	}
+
+	/**
+	 * Materializes the next node
+	 *
+	 * @return the node value
+	 */
+	private Object readNode() {
+		final Event e = parser.getEvent();
+		final Object value;
+		switch (e.getEventId()) {
+			case Alias:
+				final String alias = ((AliasEvent) e).getAnchor();
+				if (!anchors.containsKey(alias)) {
+					throw new YAMLException("Found undefined alias " + alias + e.getStartMark());
+				}
+				return anchors.get(alias);
+			case Scalar:
+				value = construct((ScalarEvent) e);
+				break;
+			case SequenceStart:
+				final List<Object> list = new ArrayList<>();
+				while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+					list.add(readNode());
+				}
+				parser.getEvent();
+				value = list;
+				break;
+			case MappingStart:
+				final Map<Object, Object> map = new LinkedHashMap<>();
+				while (!parser.checkEvent(Event.ID.MappingEnd)) {
+					if (isMergeKey()) {
+						merge(parser.getEvent(), readNode(), (key, v) -> {
+							if (!map.containsKey(key)) {
+								map.put(key, v);
+							}
+						});
+					} else {
+						final Object key = readNode();
+						map.put(key, readNode());
+					}
+				}
+				parser.getEvent();
+				value = map;
+				break;
+			default:
+				throw new IllegalStateException("Unexpected event " + e);
+		}
+
+		final String anchor = ((NodeEvent) e).getAnchor();
+		if (anchor != null) {
+			anchors.put(anchor, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Constructs a scalar the same way the safe constructor of {@link org.yaml.snakeyaml.Yaml} does for the
+	 * standard tags
+	 *
+	 * @param e the scalar event
+	 * @return the scalar value
+	 */
+	private static Object construct(final ScalarEvent e) {
+		final String value = e.getValue();
+		final Tag tag = resolve(e);
+		if (Tag.NULL.equals(tag)) {
+			return null;
+		}
+		if (Tag.BOOL.equals(tag)) {
+			final String s = value.toLowerCase();
+			return s.equals("yes") || s.equals("true") || s.equals("on");
+		}
+		if (Tag.INT.equals(tag)) {
+			return constructInt(value);
+		}
+		if (Tag.FLOAT.equals(tag)) {
+			return constructFloat(value);
+		}
+		return value;
+	}
+
+	/**
+	 * Resolves the tag of a scalar the same way the SnakeYAML composer does
+	 *
+	 * @param e the scalar event
+	 * @return the explicit tag or the tag implied by the value
+	 */
+	private static Tag resolve(final ScalarEvent e) {
+		if (e.getTag() == null || e.getTag().equals("!")) {
+			return RESOLVER.resolve(NodeId.scalar, e.getValue(), e.getImplicit().canOmitTagInPlainScalar());
+		}
+		return new Tag(e.getTag());
+	}
+
+	private static Number constructInt(final String value) {
+		String s = value.replace("_", "");
+		int sign = 1;
+		if (s.startsWith("-")) {
+			sign = -1;
+			s = s.substring(1);
+		} else if (s.startsWith("+")) {
+			s = s.substring(1);
+		}
+
+		final int radix;
+		if (s.equals("0")) {
+			return 0;
+		} else if (s.startsWith("0b")) {
+			radix = 2;
+			s = s.substring(2);
+		} else if (s.startsWith("0x")) {
+			radix = 16;
+			s = s.substring(2);
+		} else if (s.startsWith("0")) {
+			radix = 8;
+			s = s.substring(1);
+		} else if (s.indexOf(':') != -1) {
+			// sexagesimal, e.g. 190:20:30
+			long val = 0;
+			for (String digits : s.split(":")) {
+				val = val * 60 + Long.parseLong(digits);
+			}
+			return narrow(BigInteger.valueOf(sign * val));
+		} else {
+			radix = 10;
+		}
+		return narrow(new BigInteger(sign < 0 ? "-" + s : s, radix));
+	}
+
+	private static Number narrow(final BigInteger val) {
+		if (val.bitLength() < Integer.SIZE) {
+			return val.intValue();
+		}
+		if (val.bitLength() < Long.SIZE) {
+			return val.longValue();
+		}
+		return val;
+	}
+
+	private static Double constructFloat(final String value) {
+		final String s = value.replace("_", "").toLowerCase();
+		switch (s) {
+			case ".inf":
+			case "+.inf":
+				return Double.POSITIVE_INFINITY;
+			case "-.inf":
+				return Double.NEGATIVE_INFINITY;
+			case ".nan":
+				return Double.NaN;
+			default:
+				return Double.valueOf(s);
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the data directories and the config files of the datasets and updates the datasets as the files change.
+ * Only the datasets that changed are dumped again.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Watcher {
+	private static final Logger L = LogManager.getLogger(Watcher.class);
+
+	/**
+	 * Saving a file usually fires a burst of events, the events are collected until there is none for this long
+	 */
+	private static final long QUIET_MILLIS = 50;
+
+	private final Collection<? extends Dataset> datasets;
+	private final Listener listener;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> keys = new HashMap<>();
+
+	private Watcher(final Collection<? extends Dataset> datasets, final Listener listener) throws IOException {
+		this.datasets = datasets;
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+	}
+
+	/**
+	 * Notified after the datasets changed
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * @param updated the datasets that changed, the datasets are not changed until this returns
+		 */
+		void updated(Set<Dataset> updated);
+	}
+
+	/**
+	 * Watches the files of the datasets until the thread is interrupted
+	 *
+	 * @param datasets the loaded datasets
+	 * @throws IOException if the directories could not be watched
+	 */
+	public static void watch(final Collection<? extends Dataset> datasets) throws IOException {
+		watch(datasets, updated -> {
+		});
+	}
+
+	/**
+	 * Watches the files of the datasets until the thread is interrupted
+	 *
+	 * @param datasets the loaded datasets
+	 * @param listener notified on the watching thread after the datasets changed and were dumped
+	 * @throws IOException if the directories could not be watched
+	 */
+	public static void watch(final Collection<? extends Dataset> datasets, final Listener listener)
+			throws IOException {
+		final Watcher watcher = new Watcher(datasets, listener);
+		try {
+			watcher.run();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			watcher.watchService.close();
+		}
+	}
+
+	private void run() throws IOException, InterruptedException {
+		// the config files
+		register(Main.getCwd().getAbsoluteFile().toPath());
+		for (Dataset dataset : datasets) {
+			for (File dir : dataset.getDirectories()) {
+				registerAll(dir.toPath());
+			}
+		}
+		L.info("Watching for changes");
+
+		while (true) {
+			final Set<Path> changed = new LinkedHashSet<>();
+			boolean overflow = false;
+			WatchKey key = watchService.take();
+			do {
+				overflow |= poll(key, changed);
+			} while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+			final long start = System.nanoTime();
+			final Set<Dataset> dirty = overflow ? new LinkedHashSet<>(datasets) : update(changed);
+			for (Dataset dataset : dirty) {
+				try {
+					if (overflow) {
+						dataset.reload();
+					}
+					dataset.dump();
+				} catch (IOException | RuntimeException e) {
+					L.error("Could not update the statistics", e);
+				}
+			}
+			if (!dirty.isEmpty()) {
+				L.info(String.format("Updated %d file(s) in %d ms", changed.size(),
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+				try {
+					listener.updated(dirty);
+				} catch (RuntimeException e) {
+					L.error("Could not notify about the update", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the changed paths of the key
+	 *
+	 * @return whether some events were lost
+	 */
+	private boolean poll(final WatchKey key, final Set<Path> changed) {
+		final Path dir = keys.get(key);
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				overflow = true;
+			} else if (dir != null) {
+				changed.add(dir.resolve((Path) event.context()));
+			}
+		}
+		if (!key.reset()) {
+			keys.remove(key);
+		}
+		return overflow;
+	}
+
+	/**
+	 * Passes the changed files to the datasets, new directories are watched as well
+	 *
+	 * @return the datasets that changed
+	 */
+	private Set<Dataset> update(final Set<Path> changed) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		for (Path path : changed) {
+			if (Files.isDirectory(path)) {
+				if (isDataDirectory(path)) {
+					registerAll(path);
+					try (Stream<Path> walk = Files.walk(path)) {
+						files.addAll(walk.filter(Files::isRegularFile).collect(Collectors.toList()));
+					}
+				}
+			} else {
+				files.add(path);
+			}
+		}
+
+		final Set<Dataset> dirty = new LinkedHashSet<>();
+		for (Path path : files) {
+			for (Dataset dataset : datasets) {
+				try {
+					if (dataset.update(path.toFile())) {
+						dirty.add(dataset);
+					}
+				} catch (IOException | RuntimeException e) {
+					// most likely a file in the middle of being written, it will be updated on the next event
+					L.error(String.format("Could not update %s", path), e);
+				}
+			}
+		}
+		return dirty;
+	}
+
+	private boolean isDataDirectory(final Path path) {
+		for (Dataset dataset : datasets) {
+			for (File dir : dataset.getDirectories()) {
+				if (path.startsWith(dir.toPath())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void registerAll(final Path dir) throws IOException {
+		try (Stream<Path> walk = Files.walk(dir)) {
+			for (Path p : walk.filter(Files::isDirectory).collect(Collectors.toList())) {
+				register(p);
+			}
+		}
+	}
+
+	private void register(final Path dir) throws IOException {
+		keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+	}
+}
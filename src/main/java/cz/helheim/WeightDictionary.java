@@ -0,0 +1,167 @@
+package cz.helheim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The weights of a weight config file (items-config.yml, mob-config.yml). Every key (attribute, enchantment,
+ * item ID) is interned to a dense int ID once when parsing, so that the weights can be looked up by array index.
+ * <p>
+ * Keys that are not in the config are added with the default weight and written back to the config, see
+ * {@link #toMap()}. The dictionary is dirty while it has keys that were not written back yet, see {@link #isDirty()}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class WeightDictionary {
+	private static final Logger L = LogManager.getLogger(WeightDictionary.class);
+
+	private final Map<String, Object> config;
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final double defaultWeight;
+	private final int loaded;
+	private volatile int written;
+	private String[] names = new String[16];
+	private double[] weights = new double[16];
+	private int size = 0;
+
+	/**
+	 * @param config        the weight config, key = the weight key, value = the weight
+	 * @param defaultWeight the weight of keys that are not in the config
+	 */
+	public WeightDictionary(final Map<String, ?> config, final double defaultWeight) {
+		this.config = new LinkedHashMap<>(config);
+		this.defaultWeight = defaultWeight;
+		for (Map.Entry<String, ?> e : config.entrySet()) {
+			double weight = 0d;
+			if (e.getValue() instanceof Number) {
+				weight = ((Number) e.getValue()).doubleValue();
+			} else {
+				L.error(String.format("Invalid line '%s: %s'", e.getKey(), e.getValue()));
+			}
+			add(e.getKey(), weight);
+		}
+		this.loaded = size;
+		this.written = size;
+	}
+
+	/**
+	 * Gets the ID of the key, adding the key with the default weight if it does not exist yet
+	 *
+	 * @param key the weight key
+	 * @return the ID
+	 */
+	public int intern(final String key) {
+		final Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		return add(key, defaultWeight);
+	}
+
+	private int add(final String key, final double weight) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			weights = Arrays.copyOf(weights, size * 2);
+		}
+		names[size] = key;
+		weights[size] = weight;
+		ids.put(key, size);
+		return size++;
+	}
+
+	/**
+	 * @param id the key ID
+	 * @return the weight
+	 */
+	public double getWeight(final int id) {
+		return weights[id];
+	}
+
+	/**
+	 * @param id      the key ID
+	 * @param unknown the weight to use if the key was not in the config
+	 * @return the weight
+	 */
+	public double getWeight(final int id, final double unknown) {
+		return id < loaded ? weights[id] : unknown;
+	}
+
+	/**
+	 * Gets the weight of the key without interning it
+	 *
+	 * @param key     the weight key
+	 * @param unknown the weight to use if the key was not in the config
+	 * @return the weight
+	 */
+	public double getWeight(final String key, final double unknown) {
+		final Integer id = ids.get(key);
+		return id == null ? unknown : getWeight(id, unknown);
+	}
+
+	/**
+	 * The weights indexed by the key ID. The array is only valid until a new key is interned.
+	 *
+	 * @return the weights
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * @param id the key ID
+	 * @return the key
+	 */
+	public String getKey(final int id) {
+		return names[id];
+	}
+
+	/**
+	 * A copy of the keys that does not change when new keys are interned, e.g. for the readers on other threads
+	 *
+	 * @return the keys indexed by the key ID
+	 */
+	public String[] getKeys() {
+		return Arrays.copyOf(names, size);
+	}
+
+	/**
+	 * @return the amount of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return whether keys were added since the config was read or last written
+	 */
+	public boolean isDirty() {
+		return written != size;
+	}
+
+	/**
+	 * Marks the keys as written to the config
+	 *
+	 * @param size the amount of keys written, see {@link #size()} when {@link #toMap()} was called
+	 */
+	public void markWritten(final int size) {
+		this.written = size;
+	}
+
+	/**
+	 * @return the config with the new keys added, in the order they were interned
+	 */
+	public Map<String, Object> toMap() {
+		final Map<String, Object> map = new LinkedHashMap<>(config);
+		for (int i = loaded; i < size; i++) {
+			map.put(names[i], weights[i]);
+		}
+		return map;
+	}
+}
@@ -0,0 +1,190 @@
+package cz.helheim;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.introspector.Property;
+import org.yaml.snakeyaml.nodes.*;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes a YAML mapping entry by entry, the same way {@link org.yaml.snakeyaml.Yaml#dump(Object, Writer)} writes a
+ * map of the entries, but without holding the map or the node tree of the whole document. Every entry is
+ * represented and emitted on its own.
+ * <p>
+ * SnakeYAML gives an anchor to every object that is in the document more than once and aliases it afterwards.
+ * The objects that may be shared are given upfront in the order they appear in, see {@link #anchors(Iterable)},
+ * so that the anchors are the same as if the whole document was dumped at once.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class YamlStreamWriter implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Writer writer;
+	private final Emitter emitter;
+	private final Resolver resolver = new Resolver();
+	private final CapturingRepresenter representer;
+	private final Map<Object, String> anchors;
+	private final Set<Object> written = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Starts the document, the file is created or truncated
+	 *
+	 * @param f       the file
+	 * @param options the dumper options
+	 * @param anchors the anchors of the shared objects, see {@link #anchors(Iterable)}
+	 * @throws IOException if the file could not be opened
+	 */
+	public YamlStreamWriter(final File f, final DumperOptions options, final Map<Object, String> anchors)
+			throws IOException {
+		this.writer = new BufferedWriter(Channels.newWriter(FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+		this.emitter = new Emitter(writer, options);
+		this.representer = new CapturingRepresenter(options, anchors);
+		this.anchors = anchors;
+		try {
+			emitter.emit(new StreamStartEvent(null, null));
+			emitter.emit(new DocumentStartEvent(null, null, options.isExplicitStart(), options.getVersion(),
+					options.getTags()));
+			emitter.emit(new MappingStartEvent(null, Tag.MAP.getValue(), true, null, null,
+					options.getDefaultFlowStyle()));
+		} catch (IOException | RuntimeException e) {
+			writer.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Assigns the anchors the same way SnakeYAML does, an object gets the next anchor when it is referenced
+	 * the second time
+	 *
+	 * @param references the references to the objects that may be shared, in the order they are written in
+	 * @return the anchors, key = the object (by identity), value = the anchor
+	 */
+	public static Map<Object, String> anchors(final Iterable<?> references) {
+		final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		final Map<Object, String> anchors = new IdentityHashMap<>();
+		for (Object o : references) {
+			if (!seen.add(o) && !anchors.containsKey(o)) {
+				anchors.put(o, String.format(Locale.ROOT, "id%03d", anchors.size() + 1));
+			}
+		}
+		return anchors;
+	}
+
+	/**
+	 * Writes an entry of the mapping
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 * @throws IOException if the entry could not be written
+	 */
+	public void write(final String key, final Object value) throws IOException {
+		serialize(representer.represent(key));
+		serialize(representer.represent(value));
+		representer.nodes.clear();
+	}
+
+	/**
+	 * Ends the document and closes the file
+	 *
+	 * @throws IOException if the document could not be ended
+	 */
+	@Override
+	public void close() throws IOException {
+		try (Writer w = writer) {
+			emitter.emit(new MappingEndEvent(null, null));
+			emitter.emit(new DocumentEndEvent(null, null, false));
+			emitter.emit(new StreamEndEvent(null, null));
+		}
+	}
+
+	// see org.yaml.snakeyaml.serializer.Serializer#serializeNode
+	private void serialize(Node node) throws IOException {
+		if (node.getNodeId() == NodeId.anchor) {
+			// the bean was already represented in this entry
+			node = ((AnchorNode) node).getRealNode();
+		}
+		final Object object = representer.nodes.get(node);
+		final String anchor = object == null ? null : anchors.get(object);
+		if (anchor != null && !written.add(object)) {
+			emitter.emit(new AliasEvent(anchor, null, null));
+			return;
+		}
+
+		switch (node.getNodeId()) {
+			case scalar:
+				final ScalarNode scalar = (ScalarNode) node;
+				final Tag detected = resolver.resolve(NodeId.scalar, scalar.getValue(), true);
+				final Tag resolved = resolver.resolve(NodeId.scalar, scalar.getValue(), false);
+				emitter.emit(new ScalarEvent(anchor, node.getTag().getValue(),
+						new ImplicitTuple(node.getTag().equals(detected), node.getTag().equals(resolved)),
+						scalar.getValue(), null, null, scalar.getScalarStyle()));
+				break;
+			case sequence:
+				final SequenceNode sequence = (SequenceNode) node;
+				emitter.emit(new SequenceStartEvent(anchor, node.getTag().getValue(),
+						node.getTag().equals(resolver.resolve(NodeId.sequence, null, true)), null, null,
+						sequence.getFlowStyle()));
+				for (Node item : sequence.getValue()) {
+					serialize(item);
+				}
+				emitter.emit(new SequenceEndEvent(null, null));
+				break;
+			default:
+				final MappingNode mapping = (MappingNode) node;
+				emitter.emit(new MappingStartEvent(anchor, node.getTag().getValue(),
+						node.getTag().equals(resolver.resolve(NodeId.mapping, null, true)), null, null,
+						mapping.getFlowStyle()));
+				for (NodeTuple tuple : mapping.getValue()) {
+					serialize(tuple.getKeyNode());
+					serialize(tuple.getValueNode());
+				}
+				emitter.emit(new MappingEndEvent(null, null));
+				break;
+		}
+	}
+
+	/**
+	 * Remembers the shared beans of the nodes it represents
+	 */
+	private static final class CapturingRepresenter extends Representer {
+		private final Map<Object, String> anchors;
+		private final Map<Node, Object> nodes = new IdentityHashMap<>();
+
+		private CapturingRepresenter(final DumperOptions options, final Map<Object, String> anchors) {
+			super(options);
+			this.anchors = anchors;
+			// the same as org.yaml.snakeyaml.Yaml does
+			setDefaultFlowStyle(options.getDefaultFlowStyle());
+			setDefaultScalarStyle(options.getDefaultScalarStyle());
+			getPropertyUtils().setAllowReadOnlyProperties(options.isAllowReadOnlyProperties());
+			setTimeZone(options.getTimeZone());
+		}
+
+		@Override
+		protected MappingNode representJavaBean(final Set<Property> properties, final Object javaBean) {
+			final MappingNode node = super.representJavaBean(properties, javaBean);
+			if (anchors.containsKey(javaBean)) {
+				nodes.put(node, javaBean);
+			}
+			return node;
+		}
+	}
+}
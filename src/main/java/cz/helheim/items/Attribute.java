@@ -11,12 +11,12 @@ import java.util.regex.Pattern;
  */
 public class Attribute {
 	/**
-	 * The item attribute pattern, looks for "{attribute}: {min}-{max}"
+	 * The item attribute pattern, looks for "+{min}-{max} {attribute}", parsed by {@link cz.helheim.LineScanner}
 	 */
 	public static transient final Pattern ATTRIBUTE_PATTERN = Pattern.compile("&.\\+(\\d+)%?(-(\\d+))?%? (.*)");
 
 	/**
-	 * The class attribute pattern, looks for "+{min}-{max} {attribute}"
+	 * The class attribute pattern, looks for "{attribute}: {min}-{max}", parsed by {@link cz.helheim.LineScanner}
 	 */
 	public static transient final Pattern CLASS_PATTERN = Pattern.compile("&.(.*): (\\d+)%?(-(\\d+))?%?");
 	private String attribute;
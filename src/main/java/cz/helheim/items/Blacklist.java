@@ -0,0 +1,214 @@
+package cz.helheim.items;
+
+import java.util.*;
+
+/**
+ * The item filter of items-blacklist.yml. The file has three optional lists:
+ * <ul>
+ *     <li>{@code blacklist} - an item is filtered if its ID contains any of these, ignoring case</li>
+ *     <li>{@code prefix} - an item is filtered if its ID starts with any of these, case sensitive</li>
+ *     <li>{@code whitelist} - an item is never filtered if its ID contains any of these, ignoring case</li>
+ * </ul>
+ * Each list is compiled once into an Aho-Corasick automaton, so an ID is checked in a single pass over its
+ * characters, no matter how many patterns there are. The case is ignored per char, the lower case of the upper case,
+ * so e.g. the long s ('ſ') also matches 's', unlike with {@link String#toLowerCase()}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Blacklist {
+	private static final String BLACKLIST = "blacklist";
+	private static final String PREFIX = "prefix";
+	private static final String WHITELIST = "whitelist";
+
+	private final Automaton blacklist;
+	private final Automaton prefixes;
+	private final Automaton whitelist;
+
+	/**
+	 * @param blacklist the blacklisted parts of item IDs, ignoring case
+	 * @param prefixes  the blacklisted item ID prefixes, case sensitive
+	 * @param whitelist the whitelisted parts of item IDs, ignoring case
+	 */
+	public Blacklist(final Collection<String> blacklist, final Collection<String> prefixes,
+	                 final Collection<String> whitelist) {
+		this.blacklist = new Automaton(blacklist, true);
+		this.prefixes = new Automaton(prefixes, false);
+		this.whitelist = new Automaton(whitelist, true);
+	}
+
+	/**
+	 * @param config the blacklist config
+	 * @return the blacklist
+	 */
+	public static Blacklist of(final Map<String, ?> config) {
+		return new Blacklist(getList(config, BLACKLIST), getList(config, PREFIX), getList(config, WHITELIST));
+	}
+
+	private static Collection<String> getList(final Map<String, ?> config, final String key) {
+		final Object list = config.get(key);
+		if (!(list instanceof Collection)) {
+			return Collections.emptyList();
+		}
+
+		final Collection<String> patterns = new ArrayList<>();
+		for (Object o : (Collection<?>) list) {
+			if (o != null) {
+				patterns.add(String.valueOf(o));
+			}
+		}
+		return patterns;
+	}
+
+	/**
+	 * @param itemId the item ID
+	 * @return whether the item should be left out
+	 */
+	public boolean isFiltered(final String itemId) {
+		return (blacklist.contains(itemId) || prefixes.isPrefix(itemId)) && !whitelist.contains(itemId);
+	}
+
+	private static char fold(final char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * An Aho-Corasick automaton, it only tells whether a string contains any of the patterns.
+	 * The transitions of a state are kept sorted, so that a transition is found by binary search.
+	 */
+	private static final class Automaton {
+		private static final int ROOT = 0;
+
+		private final boolean ignoreCase;
+		private char[][] labels = new char[16][];
+		private int[][] targets = new int[16][];
+		private int[] transitions = new int[16];
+		private int[] fail = new int[16];
+		// a pattern ends in the state
+		private boolean[] end = new boolean[16];
+		// a pattern ends in the state or in one of its fail states
+		private boolean[] output = new boolean[16];
+		private int size = 0;
+
+		private Automaton(final Collection<String> patterns, final boolean ignoreCase) {
+			this.ignoreCase = ignoreCase;
+			newState();
+			for (String pattern : patterns) {
+				int state = ROOT;
+				for (int i = 0; i < pattern.length(); i++) {
+					final char c = ignoreCase ? fold(pattern.charAt(i)) : pattern.charAt(i);
+					int next = next(state, c);
+					if (next == -1) {
+						next = newState();
+						addTransition(state, c, next);
+					}
+					state = next;
+				}
+				end[state] = true;
+			}
+			buildFailLinks();
+		}
+
+		private int newState() {
+			if (size == labels.length) {
+				final int capacity = size * 2;
+				labels = Arrays.copyOf(labels, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				transitions = Arrays.copyOf(transitions, capacity);
+				fail = Arrays.copyOf(fail, capacity);
+				end = Arrays.copyOf(end, capacity);
+				output = Arrays.copyOf(output, capacity);
+			}
+			labels[size] = new char[2];
+			targets[size] = new int[2];
+			return size++;
+		}
+
+		private void addTransition(final int state, final char c, final int target) {
+			final int n = transitions[state];
+			if (n == labels[state].length) {
+				labels[state] = Arrays.copyOf(labels[state], n * 2);
+				targets[state] = Arrays.copyOf(targets[state], n * 2);
+			}
+			final int i = -Arrays.binarySearch(labels[state], 0, n, c) - 1;
+			System.arraycopy(labels[state], i, labels[state], i + 1, n - i);
+			System.arraycopy(targets[state], i, targets[state], i + 1, n - i);
+			labels[state][i] = c;
+			targets[state][i] = target;
+			transitions[state]++;
+		}
+
+		/**
+		 * @return the target of the transition or -1 if there is none
+		 */
+		private int next(final int state, final char c) {
+			final int i = Arrays.binarySearch(labels[state], 0, transitions[state], c);
+			return i < 0 ? -1 : targets[state][i];
+		}
+
+		// breadth-first, so the fail state of a state is always done before the state
+		private void buildFailLinks() {
+			final int[] queue = new int[size];
+			int head = 0, tail = 0;
+			output[ROOT] = end[ROOT];
+			for (int i = 0; i < transitions[ROOT]; i++) {
+				final int child = targets[ROOT][i];
+				fail[child] = ROOT;
+				output[child] = end[child] || output[ROOT];
+				queue[tail++] = child;
+			}
+
+			while (head < tail) {
+				final int state = queue[head++];
+				for (int i = 0; i < transitions[state]; i++) {
+					final char c = labels[state][i];
+					final int child = targets[state][i];
+					int f = fail[state];
+					int next;
+					while ((next = next(f, c)) == -1 && f != ROOT) {
+						f = fail[f];
+					}
+					fail[child] = next == -1 ? ROOT : next;
+					output[child] = end[child] || output[fail[child]];
+					queue[tail++] = child;
+				}
+			}
+		}
+
+		/**
+		 * @return whether the string contains any of the patterns
+		 */
+		private boolean contains(final String s) {
+			int state = ROOT;
+			if (output[state]) {
+				return true;
+			}
+			for (int i = 0; i < s.length(); i++) {
+				final char c = ignoreCase ? fold(s.charAt(i)) : s.charAt(i);
+				int next;
+				while ((next = next(state, c)) == -1 && state != ROOT) {
+					state = fail[state];
+				}
+				state = next == -1 ? ROOT : next;
+				if (output[state]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return whether the string starts with any of the patterns
+		 */
+		private boolean isPrefix(final String s) {
+			int state = ROOT;
+			for (int i = 0; !end[state]; i++) {
+				if (i == s.length() || (state = next(state, ignoreCase ? fold(s.charAt(i)) : s.charAt(i))) == -1) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
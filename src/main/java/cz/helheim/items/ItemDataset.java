@@ -0,0 +1,273 @@
+package cz.helheim.items;
+
+import cz.helheim.Dataset;
+import cz.helheim.Events;
+import cz.helheim.FileLoader;
+import cz.helheim.FileRecords;
+import cz.helheim.LevelAggregate;
+import cz.helheim.LevelIndex;
+import cz.helheim.Main;
+import cz.helheim.OutputFormat;
+import cz.helheim.ParseCache;
+import cz.helheim.Pipeline;
+import cz.helheim.RunReport;
+import cz.helheim.WeightDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The ranked items of every item file. Each file keeps its own table and level aggregate, so that a changed file
+ * is subtracted from the total and added again, instead of ranking all items again.
+ * A change of the weights or the blacklist ranks all items again, from the lore kept in memory.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ItemDataset implements Dataset {
+	private static final Logger L = LogManager.getLogger(ItemDataset.class);
+	private static final String CACHE_FILE = "items.bin";
+
+	private final File dir;
+	private final File config;
+	private final File filter;
+	private final FileRecords<List<String>> lore = new FileRecords<>();
+	private final Map<File, Contribution> contributions = new HashMap<>();
+	private WeightDictionary weights;
+	private Map<String, Object> filterConfig;
+	private Blacklist blacklist;
+	private LevelAggregate levels;
+	private ItemTable table = null;
+	private LevelIndex<Item> index = null;
+
+	private ItemDataset(final File dir, final File config, final File filter) {
+		this.dir = dir;
+		this.config = config;
+		this.filter = filter;
+	}
+
+	/**
+	 * Loads the config files and all item files, the item files that did not change since the last run are
+	 * read from the parse cache
+	 *
+	 * @return the ranked items
+	 * @throws IOException if a file could not be read
+	 */
+	public static ItemDataset load() throws IOException {
+		final ItemDataset items = new ItemDataset(ItemStatistics.getItemsFolder().getAbsoluteFile(),
+				ItemStatistics.getConfig().getAbsoluteFile(), ItemStatistics.getFilter().getAbsoluteFile());
+		items.reload();
+		return items;
+	}
+
+	@Override
+	public void reload() throws IOException {
+		weights = readWeights();
+		filterConfig = Main.readFile(filter, new LinkedHashMap<>());
+		blacklist = Blacklist.of(filterConfig);
+
+		final ParseCache cache = ParseCache.open(new File(Main.getCacheDir(), CACHE_FILE), ItemStatistics.LORE);
+		final Map<File, Map<String, List<String>>> loaded = FileLoader.loadAll(dir,
+				cache.wrap(ItemStatistics::readLore));
+		cache.save();
+		for (File f : new ArrayList<>(lore.getFiles())) {
+			if (!loaded.containsKey(f)) {
+				lore.remove(f);
+			}
+		}
+		for (Map.Entry<File, Map<String, List<String>>> e : loaded.entrySet()) {
+			lore.put(e.getKey(), e.getValue());
+		}
+		rankAll();
+	}
+
+	@Override
+	public Collection<File> getDirectories() {
+		return Collections.singleton(dir);
+	}
+
+	@Override
+	public boolean update(final File f) throws IOException {
+		if (f.equals(config)) {
+			final WeightDictionary weights = readWeights();
+			if (weights.toMap().equals(this.weights.toMap())) {
+				return false;
+			}
+			this.weights = weights;
+			rankAll();
+			return true;
+		}
+		if (f.equals(filter)) {
+			final Map<String, Object> filterConfig = Main.readFile(filter, new LinkedHashMap<>());
+			if (filterConfig.equals(this.filterConfig)) {
+				return false;
+			}
+			this.filterConfig = filterConfig;
+			this.blacklist = Blacklist.of(filterConfig);
+			rankAll();
+			return true;
+		}
+		if (!f.toPath().startsWith(dir.toPath()) || !f.getName().endsWith(".yml")) {
+			return false;
+		}
+
+		final Set<File> affected = f.isFile() ? lore.put(f, ItemStatistics.readLore(f)) : lore.remove(f);
+		for (File a : affected) {
+			rank(a);
+		}
+		levels.refresh(partials());
+		return !affected.isEmpty();
+	}
+
+	private WeightDictionary readWeights() throws IOException {
+		// unknown attributes are added with the weight of 1
+		return new WeightDictionary(Main.readFile(config, new LinkedHashMap<>()), 1d);
+	}
+
+	private void rankAll() {
+		levels = new LevelAggregate(ItemTable.RANKS);
+		contributions.clear();
+		table = null;
+		index = null;
+		for (File f : lore.getFiles()) {
+			rank(f);
+		}
+	}
+
+	/**
+	 * Ranks the items of the file again, replacing its previous contribution to the level aggregate
+	 */
+	private void rank(final File f) {
+		table = null;
+		index = null;
+		final Contribution previous = contributions.remove(f);
+		if (previous != null) {
+			levels.subtract(previous.levels);
+		}
+		if (!lore.contains(f)) {
+			return;
+		}
+
+		// rank the items and aggregate the ranks per level
+		// if the item had no attributes, skip it
+		final ItemTable items = ItemStatistics.parseItems(lore.getRecords(f), blacklist, weights);
+		final LevelAggregate fileLevels = new LevelAggregate(ItemTable.RANKS);
+		final Events.Rank event = new Events.Rank();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.RANK, event);
+		final int parsed = items.size();
+		items.rank(fileLevels);
+		items.removeUnranked();
+		span.end(parsed, 0);
+		event.path = f.getPath();
+		event.items = parsed;
+		event.ranked = items.size();
+		event.commit();
+		contributions.put(f, new Contribution(items, fileLevels));
+		levels.merge(fileLevels);
+	}
+
+	private Collection<LevelAggregate> partials() {
+		final Collection<LevelAggregate> partials = new ArrayList<>(contributions.size());
+		for (Contribution c : contributions.values()) {
+			partials.add(c.levels);
+		}
+		return partials;
+	}
+
+	/**
+	 * @return the ranked items of all files, ordered by file path
+	 */
+	public ItemTable getTable() {
+		if (table == null) {
+			table = new ItemTable(weights);
+			for (File f : lore.getFiles()) {
+				table.append(contributions.get(f).items);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * The index of the ranked items for queries, e.g. all items between level 20 and 30 with Vyhýbání, best first:
+	 * <pre>
+	 * items.getIndex().query().levels(20, 30).with("Vyhýbání").orderBy(LevelIndex.Order.SCORE).list()
+	 * </pre>
+	 * The index is built on the first query after the items were ranked, the score is the avg rank and the keys are
+	 * the attribute names.
+	 *
+	 * @return the index, the indices are the rows of {@link #getTable()}
+	 */
+	public LevelIndex<Item> getIndex() {
+		if (index == null) {
+			index = getTable().createIndex();
+		}
+		return index;
+	}
+
+	/**
+	 * @return the min/avg/max ranks aggregated per level, see {@link ItemTable#RANKS}
+	 */
+	public LevelAggregate getLevels() {
+		return levels;
+	}
+
+	/**
+	 * @return the attribute weights
+	 */
+	public WeightDictionary getWeights() {
+		return weights;
+	}
+
+	@Override
+	public CompletableFuture<Void> dump(final Executor executor) {
+		if (levels.getIgnored() > 0) {
+			L.warn(String.format("%d items have an invalid level requirement", levels.getIgnored() / ItemTable.RANKS));
+		}
+
+		final List<CompletableFuture<Void>> stages = new ArrayList<>(3 + OutputFormat.values().length);
+
+		// add additional new weights to the config
+		if (weights.isDirty()) {
+			final WeightDictionary weights = this.weights;
+			final Map<String, Object> map = weights.toMap();
+			final int size = weights.size();
+			stages.add(Pipeline.run(() -> {
+				ItemStatistics.addToConfig(config, map);
+				weights.markWritten(size);
+			}, executor));
+		}
+
+		// dump it all into files
+		final String itemsFile = "items-" + System.currentTimeMillis() + ".";
+		final ItemTable table = getTable();
+		for (OutputFormat format : Main.getOutputFormats()) {
+			stages.add(Pipeline.run(() -> ItemStatistics.dumpItems(itemsFile + format.getExtension(), table, format),
+					executor));
+		}
+		stages.add(Pipeline.run(() -> ItemStatistics.dumpLevels("item-levels-" + System.currentTimeMillis() + ".yml",
+				levels), executor));
+		// the rank chart and the attribute and family charts, rendered concurrently and linked by an index page
+		stages.add(Pipeline.run(() -> ItemStatistics.createCharts(table, levels).write("item-charts.html"),
+				executor));
+		return CompletableFuture.allOf(stages.toArray(new CompletableFuture[0]));
+	}
+
+	/**
+	 * The ranked items of a single file and their ranks aggregated per level
+	 */
+	private static class Contribution {
+		private final ItemTable items;
+		private final LevelAggregate levels;
+
+		private Contribution(final ItemTable items, final LevelAggregate levels) {
+			this.items = items;
+			this.levels = levels;
+		}
+	}
+}
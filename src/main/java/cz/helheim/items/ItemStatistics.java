@@ -1,7 +1,20 @@
 package cz.helheim.items;
 
 
+import cz.helheim.ChannelFileReader;
+import cz.helheim.ChannelOutput;
+import cz.helheim.ChartSet;
+import cz.helheim.ColumnFile;
+import cz.helheim.ConfigWriter;
+import cz.helheim.Events;
+import cz.helheim.LevelAggregate;
+import cz.helheim.LineScanner;
 import cz.helheim.Main;
+import cz.helheim.OutputFormat;
+import cz.helheim.RunReport;
+import cz.helheim.StreamingYamlReader;
+import cz.helheim.WeightDictionary;
+import cz.helheim.YamlStreamWriter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jfree.chart.ChartFactory;
@@ -10,11 +23,10 @@ import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.Reader;
+import java.text.Collator;
 import java.util.*;
-import java.util.regex.Matcher;
 
 /**
  * The "main" of item statistics
@@ -31,8 +43,14 @@ public class ItemStatistics {
 	private static final Logger L = LogManager.getLogger(ItemStatistics.class);
 	private static final String BLACKLIST = "items-blacklist.yml";
 	private static final String ITEMS_PATH = "items";
+	static final String LORE = "lore";
+	private static final Set<String> LORE_KEYS = Collections.singleton(LORE);
 
-	private static final int THRESHOLD = 5;
+	static final int THRESHOLD = 5;
+	private static final String ATTRIBUTE_PREFIX = "item-attr-";
+	private static final String FAMILY_PREFIX = "item-family-";
+	// the kind of the attribute value in the level aggregate of an attribute
+	private static final int VALUE = 0;
 
 	/**
 	 * The "main"
@@ -40,78 +58,14 @@ public class ItemStatistics {
 	 * @throws IOException if an IO based operation failed
 	 */
 	public static void parseItems() throws IOException {
-		// read config files
-		final Map<String, Double> weights = Main.readFile(getConfig(), new LinkedHashMap<>());
-		final Map<String, Object> blacklist = Main.readFile(getFilter(), new LinkedHashMap<>());
-
-		// read and parse the items
-		final Collection<Item> items = parseItems(
-				Main.readFiles(ITEMS_PATH, new LinkedHashMap<>()),
-				(Collection<String>) blacklist.getOrDefault("blacklist", new ArrayList<>()));
-
-		// rank the items
-		final List<Item> avgRanks = new ArrayList<>();
-		for (Item item : items) {
-			double minRank = 0;
-			double avgRank = 0;
-			double maxRank = 0;
-
-			// count the weight based on the attributes
-			for (Attribute attr : item.getAttributes()) {
-				final String attrStr = attr.getAttribute();
-
-				// add an unknown attribute to the map
-				weights.putIfAbsent(attrStr, 1d);
-				try {
-					final double w = weights.get(attrStr);
-					minRank += w * attr.getMin();
-					avgRank += w * ((attr.getMax() + attr.getMin()) / 2d);
-					maxRank += w * attr.getMax();
-				} catch (Exception e) {
-					L.error(String.format("Invalid line '%s'", weights.get(attrStr)));
-				}
-			}
-
-			// if the item had no attributes, skip it
-			if (avgRank > 0) {
-				item.setMinRank(minRank);
-				item.setAvgRank(avgRank);
-				item.setMaxRank(maxRank);
-				avgRanks.add(item);
-			}
-		}
+		// read the config files, read, parse and rank the items
+		final ItemDataset items = ItemDataset.load();
 
-		// add additional new weights to the config
-		addToConfig(getConfig(), weights);
-
-		// get min/avg/max ranks and sort it by level
-		final List<Item> minRanks = new ArrayList<>(avgRanks);
-		final List<Item> maxRanks = new ArrayList<>(avgRanks);
-
-		// sort them by level
-		minRanks.sort(Comparator.comparingInt(Item::getLvl));
-		avgRanks.sort(Comparator.comparingInt(Item::getLvl));
-		maxRanks.sort(Comparator.comparingInt(Item::getLvl));
-
-		final Map<String, Map<String, Item>> itemRanked = new LinkedHashMap<>();
-		populateMap(minRanks, MIN, itemRanked);
-		populateMap(avgRanks, AVG, itemRanked);
-		populateMap(maxRanks, MAX, itemRanked);
-
-		// dump it all into files
-		dumpItems("items-" + System.currentTimeMillis() + ".yml", itemRanked.get(AVG));
-		createChart("avg-only.svg", itemRanked);
+		// add additional new weights to the config and dump it all into files
+		items.dump();
 	}
 
-	private static void populateMap(Collection<Item> items, String key, Map<String, Map<String, Item>> itemRanked) {
-		for (Item i : items) {
-			Map<String, Item> map = itemRanked.getOrDefault(key, new LinkedHashMap<>());
-			map.put(i.getItemId(), i);
-			itemRanked.putIfAbsent(key, map);
-		}
-	}
-
-	private static File getFilter() throws IOException {
+	static File getFilter() throws IOException {
 		final File f = new File(Main.getCwd(), BLACKLIST);
 		if (!f.exists()) {
 			f.createNewFile();
@@ -122,52 +76,42 @@ public class ItemStatistics {
 	/**
 	 * Creates a line chart
 	 *
-	 * @param fileName   the file name to dump it to
-	 * @param itemRanked the data, the key is "min"/"avg"/"max", the underlying map - key = item ID, value = item
-	 * @throws IOException if the chart could not be created
+	 * @param levels the min/avg/max ranks aggregated per level
+	 * @return the chart or {@code null} if there is nothing to chart
 	 */
-	private static void createChart(final String fileName, final Map<String, Map<String, Item>> itemRanked)
-			throws IOException {
-		if (itemRanked.isEmpty()) {
+	public static JFreeChart createChart(final LevelAggregate levels) {
+		final XYSeriesCollection ds = createDataset(levels);
+		if (ds == null) {
+			return null;
+		}
+
+		return ChartFactory.createXYLineChart("Item stats / level chart", "Level requirement",
+				"Item stats", ds);
+	}
+
+	/**
+	 * Creates the min/avg/max series of the levels with enough items, see {@link #THRESHOLD}, the avg%
+	 * series, i.e. the avg change from the previous level in %, and the p10/median/p90 series of the avg rank
+	 *
+	 * @param levels the min/avg/max ranks aggregated per level
+	 * @return the chart dataset or {@code null} if there is nothing to chart
+	 */
+	static XYSeriesCollection createDataset(final LevelAggregate levels) {
+		if (levels.isEmpty()) {
 			L.info("No items loaded, cannot create item charts");
-			return;
+			return null;
 		}
 
 		XYSeriesCollection ds = new XYSeriesCollection();
-		for (Map.Entry<String, Map<String, Item>> e : itemRanked.entrySet()) {
-			final XYSeries series = new XYSeries(e.getKey());
-			Map<Integer, Number> vals = new HashMap<>();
-			Map<Integer, Integer> itemsPerLvl = new HashMap<>();
-
-			for (Map.Entry<String, Item> entry : e.getValue().entrySet()) {
-				Item item = entry.getValue();
-				Number value = 0d;
-
-				// this is pretty awful, but well. who cares
-				switch (e.getKey()) {
-					case MIN:
-						value = item.getMinRank();
-						break;
-					case AVG:
-						value = item.getAvgRank();
-						break;
-					case MAX:
-						value = item.getMaxRank();
-						break;
-				}
-
-				// store the value and amount of items
-				vals.put(item.getLvl(), vals.getOrDefault(item.getLvl(), 0d).doubleValue() + value.doubleValue());
-				itemsPerLvl.put(item.getLvl(), itemsPerLvl.getOrDefault(item.getLvl(), 0) + 1);
-			}
+		final String[] keys = {MIN, AVG, MAX};
+		for (int kind = 0; kind < ItemTable.RANKS; kind++) {
+			final XYSeries series = new XYSeries(keys[kind]);
 
-			// iterate through values and check if there are enough items
+			// check if there are enough items
 			// see THRESHOLD
-			for (Map.Entry<Integer, Number> entry : vals.entrySet()) {
-				final int amount = itemsPerLvl.getOrDefault(entry.getKey(), Integer.MAX_VALUE);
-				if (amount >= THRESHOLD) {
-					final Number curVal = (entry.getValue().doubleValue() / amount);
-					series.add(entry.getKey(), curVal);
+			for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+				if (levels.getCount(kind, lvl) >= THRESHOLD) {
+					series.add(lvl, levels.getMean(kind, lvl));
 				}
 			}
 			ds.addSeries(series);
@@ -176,10 +120,14 @@ public class ItemStatistics {
 		// not series found means no items -> don't dump it
 		if (ds.getSeriesCount() < 1) {
 			L.info("No items loaded, cannot create item charts");
-			return;
+			return null;
 		}
 
-		final XYSeries avgSeries = ds.getSeries(1);
+		final XYSeries avgSeries = ds.getSeries(ItemTable.AVG_RANK);
+		if (avgSeries.isEmpty()) {
+			L.info(String.format("No level has at least %d items, cannot create item charts", THRESHOLD));
+			return null;
+		}
 		final XYSeries powRegression = new XYSeries("avg%");
 		for (int i = 1; i < avgSeries.getItemCount(); i++) {
 			final Number prev = avgSeries.getY(i - 1);
@@ -191,105 +139,466 @@ public class ItemStatistics {
 
 		ds.addSeries(powRegression);
 
-		final JFreeChart chart = ChartFactory.createXYLineChart("Item stats / level chart", "Level requirement",
-				"Item stats", ds);
-		Main.dumpChart(fileName, chart);
+		// the spread of the avg rank, estimated by the sketches
+		final double[] quantiles = {0.1, 0.5, 0.9};
+		final String[] names = {AVG + " p10", AVG + " median", AVG + " p90"};
+		for (int q = 0; q < quantiles.length; q++) {
+			final XYSeries series = new XYSeries(names[q]);
+			for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+				if (levels.getCount(ItemTable.AVG_RANK, lvl) >= THRESHOLD) {
+					series.add(lvl, levels.getQuantile(ItemTable.AVG_RANK, lvl, quantiles[q]));
+				}
+			}
+			ds.addSeries(series);
+		}
+		return ds;
 	}
 
-	private static void dumpItems(final String file, final Object itemsRanked)
-			throws IOException {
-		try (FileWriter fw = new FileWriter(new File(Main.getOutDir(), file), StandardCharsets.UTF_8)) {
-			Main.getYaml().dump(itemsRanked, fw);
+	/**
+	 * Creates the chart of the ranks, a chart of the values of every attribute and a chart of the ranks of every
+	 * item family, see {@link #getFamily(String)}. The charts are created and rendered by {@link ChartSet#write(String)}.
+	 *
+	 * @param table  the ranked items
+	 * @param levels the min/avg/max ranks aggregated per level
+	 * @return the charts
+	 */
+	static ChartSet createCharts(final ItemTable table, final LevelAggregate levels) {
+		final ChartSet charts = new ChartSet("Item charts");
+		charts.add("", "avg-only", () -> createChart(levels));
+
+		charts.section("Attributes");
+		for (Map.Entry<String, LevelAggregate> e : aggregateAttributes(table).entrySet()) {
+			charts.add(ATTRIBUTE_PREFIX, e.getKey(), () -> createAttributeChart(e.getKey(), e.getValue()));
+		}
+
+		charts.section("Item families");
+		for (Map.Entry<String, LevelAggregate> e : aggregateFamilies(table).entrySet()) {
+			final LevelAggregate family = e.getValue();
+			charts.add(FAMILY_PREFIX, e.getKey(), () -> hasThreshold(family, ItemTable.AVG_RANK)
+					? ChartFactory.createXYLineChart(e.getKey() + " / level chart", "Level requirement",
+					"Item stats", createDataset(family))
+					: null);
 		}
+		return charts;
 	}
 
-	private static File getConfig() throws IOException {
-		final File f = new File(Main.getCwd(), CONFIG_FILE);
-		if (!f.exists()) {
-			f.createNewFile();
+	/**
+	 * Aggregates the values of every attribute per level, the value of an attribute is the average of its min and
+	 * max, e.g. 15 for "+10-20 Obrana"
+	 *
+	 * @param table the ranked items
+	 * @return key = the attribute name, value = the values aggregated per level, sorted alphabetically by the name
+	 */
+	static Map<String, LevelAggregate> aggregateAttributes(final ItemTable table) {
+		final LevelAggregate[] attributes = new LevelAggregate[table.getWeights().size()];
+		for (int row = 0; row < table.size(); row++) {
+			final int lvl = table.getLvl(row);
+			final int offset = table.getAttributeOffset(row);
+			for (int i = offset; i < offset + table.getAttributeCount(row); i++) {
+				final int attrId = table.getAttributeId(i);
+				if (attributes[attrId] == null) {
+					attributes[attrId] = new LevelAggregate(1);
+				}
+				attributes[attrId].add(VALUE, lvl, (table.getAttributeMin(i) + table.getAttributeMax(i)) / 2d);
+			}
 		}
-		return f;
+
+		final Map<String, LevelAggregate> byName = new TreeMap<>(Collator.getInstance(Locale.ROOT));
+		for (int attrId = 0; attrId < attributes.length; attrId++) {
+			if (attributes[attrId] != null) {
+				byName.put(table.getWeights().getKey(attrId), attributes[attrId]);
+			}
+		}
+		return byName;
 	}
 
-	private static Collection<Item> parseItems(Map<String, ?> map,
-	                                           final Collection<String> blacklist) {
-		final Collection<Item> items = new ArrayList<>();
+	/**
+	 * Aggregates the min/avg/max ranks of every item family per level, the families with less than
+	 * {@link #THRESHOLD} items are left out
+	 *
+	 * @param table the ranked items
+	 * @return key = the family, value = the min/avg/max ranks aggregated per level, sorted by the family
+	 */
+	static Map<String, LevelAggregate> aggregateFamilies(final ItemTable table) {
+		// counted first, so that IDs without a family do not get an aggregate each
+		final Map<String, int[]> sizes = new HashMap<>();
+		for (int row = 0; row < table.size(); row++) {
+			sizes.computeIfAbsent(getFamily(table.getItemId(row)), f -> new int[1])[0]++;
+		}
 
-		loop:
-		for (Map.Entry<String, ?> entry : map.entrySet()) {
-			final String itemId = entry.getKey();
+		final Map<String, LevelAggregate> families = new TreeMap<>();
+		for (int row = 0; row < table.size(); row++) {
+			final String family = getFamily(table.getItemId(row));
+			if (sizes.get(family)[0] < THRESHOLD) {
+				continue;
+			}
+			final LevelAggregate levels = families.computeIfAbsent(family, f -> new LevelAggregate(ItemTable.RANKS));
+			final int lvl = table.getLvl(row);
+			levels.add(ItemTable.MIN_RANK, lvl, table.getMinRank(row));
+			levels.add(ItemTable.AVG_RANK, lvl, table.getAvgRank(row));
+			levels.add(ItemTable.MAX_RANK, lvl, table.getMaxRank(row));
+		}
+		return families;
+	}
 
-			// first check if the item is in the blacklist
-			// it contains a set of blacklisted prefixes
-			for (String s : blacklist) {
-				if (itemId.toLowerCase().contains(s.toLowerCase())) {
-					L.info("Filtered " + itemId);
-					continue loop;
+	/**
+	 * The family of an item is its ID up to the first '_', e.g. "boots" for "boots_t2_12"
+	 *
+	 * @param itemId the item ID
+	 * @return the family, the whole ID if it has no '_'
+	 */
+	static String getFamily(final String itemId) {
+		final int end = itemId.indexOf('_');
+		return end > 0 ? itemId.substring(0, end) : itemId;
+	}
+
+	/**
+	 * Creates a line chart of the min/avg/max and the median value of an attribute per level, only the levels with
+	 * enough items are charted, see {@link #THRESHOLD}
+	 *
+	 * @param attribute the attribute name
+	 * @param values    the values aggregated per level, see {@link #aggregateAttributes(ItemTable)}
+	 * @return the chart or {@code null} if no level has enough items
+	 */
+	static JFreeChart createAttributeChart(final String attribute, final LevelAggregate values) {
+		if (!hasThreshold(values, VALUE)) {
+			return null;
+		}
+
+		final XYSeries min = new XYSeries(MIN);
+		final XYSeries avg = new XYSeries(AVG);
+		final XYSeries max = new XYSeries(MAX);
+		final XYSeries median = new XYSeries("median");
+		for (int lvl = 0; lvl < values.getLevels(); lvl++) {
+			if (values.getCount(VALUE, lvl) >= THRESHOLD) {
+				min.add(lvl, values.getMin(VALUE, lvl));
+				avg.add(lvl, values.getMean(VALUE, lvl));
+				max.add(lvl, values.getMax(VALUE, lvl));
+				median.add(lvl, values.getQuantile(VALUE, lvl, 0.5));
+			}
+		}
+
+		final XYSeriesCollection ds = new XYSeriesCollection();
+		ds.addSeries(min);
+		ds.addSeries(avg);
+		ds.addSeries(max);
+		ds.addSeries(median);
+		return ChartFactory.createXYLineChart(attribute + " / level chart", "Level requirement", attribute, ds);
+	}
+
+	/**
+	 * @return whether any level has at least {@link #THRESHOLD} values of the kind
+	 */
+	private static boolean hasThreshold(final LevelAggregate levels, final int kind) {
+		for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+			if (levels.getCount(kind, lvl) >= THRESHOLD) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Dumps the statistics of the ranks per level, key = level, value = the count, mean, min, p10, median, p90
+	 * and max of the min/avg/max ranks, see {@link LevelAggregate#summarize(int, int)}
+	 *
+	 * @param file   the file name
+	 * @param levels the min/avg/max ranks aggregated per level
+	 * @throws IOException if the levels could not be dumped
+	 */
+	static void dumpLevels(final String file, final LevelAggregate levels) throws IOException {
+		final String[] keys = {MIN, AVG, MAX};
+		try (YamlStreamWriter out = new YamlStreamWriter(new File(Main.getOutDir(), file),
+				Main.createDumperOptions(), Collections.emptyMap())) {
+			for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+				if (levels.getCount(ItemTable.AVG_RANK, lvl) == 0) {
+					continue;
+				}
+				final Map<String, Object> ranks = new LinkedHashMap<>();
+				for (int kind = 0; kind < ItemTable.RANKS; kind++) {
+					ranks.put(keys[kind], levels.summarize(kind, lvl));
 				}
+				out.write(String.valueOf(lvl), ranks);
 			}
+		}
+	}
 
-			Collection<Attribute> attributes = new ArrayList<>();
-			if (!(entry.getValue() instanceof Map)) {
-				continue;
+	/**
+	 * Dumps the items sorted by level, key = item ID, value = item
+	 *
+	 * @param file  the file name
+	 * @param items the ranked items
+	 * @throws IOException if the items could not be dumped
+	 */
+	static void dumpItems(final String file, final ItemTable items)
+			throws IOException {
+		// the items are created and written one by one, none of them is shared
+		try (YamlStreamWriter out = new YamlStreamWriter(new File(Main.getOutDir(), file),
+				Main.createDumperOptions(), Collections.emptyMap())) {
+			for (int row : items.sortedByLevel()) {
+				out.write(items.getItemId(row), items.getItem(row));
 			}
+		}
+	}
 
-			Map<String, ?> values = (Map<String, ?>) entry.getValue();
-			if (!(values.containsKey("lore") && values.get("lore") instanceof List)) {
-				continue;
+	/**
+	 * Dumps the items sorted by level in the format
+	 *
+	 * @param file   the file name
+	 * @param items  the ranked items
+	 * @param format the format
+	 * @throws IOException if the items could not be dumped
+	 */
+	static void dumpItems(final String file, final ItemTable items, final OutputFormat format) throws IOException {
+		final Events.Dump event = new Events.Dump();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.DUMP, event);
+		switch (format) {
+			case CSV:
+				dumpItemsCsv(file, items);
+				break;
+			case BINARY:
+				dumpItemsColumns(file, items);
+				break;
+			case YAML:
+			default:
+				dumpItems(file, items);
+				break;
+		}
+		span.end(items.size(), 0);
+		event.file = file;
+		event.format = format.name();
+		event.entries = items.size();
+		event.commit();
+	}
+
+	/**
+	 * Dumps the items sorted by level into a CSV file, one row per item. The attributes are joined in a single
+	 * column as {@code name=min-max;name=min-max}.
+	 *
+	 * @param file  the file name
+	 * @param items the ranked items
+	 * @throws IOException if the items could not be dumped
+	 */
+	static void dumpItemsCsv(final String file, final ItemTable items) throws IOException {
+		final WeightDictionary weights = items.getWeights();
+		final StringBuilder sb = new StringBuilder();
+		try (ChannelOutput out = new ChannelOutput(new File(Main.getOutDir(), file))) {
+			out.putText("item_id,lvl,min_rank,avg_rank,max_rank,attributes\n");
+			for (int row : items.sortedByLevel()) {
+				sb.setLength(0);
+				sb.append(OutputFormat.csvField(items.getItemId(row))).append(',')
+						.append(items.getLvl(row)).append(',')
+						.append(items.getMinRank(row)).append(',')
+						.append(items.getAvgRank(row)).append(',')
+						.append(items.getMaxRank(row)).append(',');
+
+				final StringBuilder attributes = new StringBuilder();
+				final int offset = items.getAttributeOffset(row);
+				for (int a = offset; a < offset + items.getAttributeCount(row); a++) {
+					if (a > offset) {
+						attributes.append(';');
+					}
+					attributes.append(weights.getKey(items.getAttributeId(a))).append('=')
+							.append(items.getAttributeMin(a)).append('-').append(items.getAttributeMax(a));
+				}
+				sb.append(OutputFormat.csvField(attributes.toString())).append('\n');
+				out.putText(sb);
+			}
+		}
+	}
+
+	/**
+	 * Dumps the items sorted by level into a binary columnar file, see {@link ColumnFile}. The columns are
+	 * item_id, lvl, min_rank, avg_rank, max_rank, attr_offset (the first attribute of each item, plus the
+	 * end), attr_name, attr_min, attr_max, and the weights of the attributes weight_name and weight.
+	 *
+	 * @param file  the file name
+	 * @param items the ranked items
+	 * @throws IOException if the items could not be dumped
+	 */
+	static void dumpItemsColumns(final String file, final ItemTable items) throws IOException {
+		final int size = items.size();
+		final String[] ids = new String[size];
+		final int[] lvl = new int[size];
+		final double[] min = new double[size];
+		final double[] avg = new double[size];
+		final double[] max = new double[size];
+		final int[] offsets = new int[size + 1];
+		int attributes = 0;
+		for (int row = 0; row < size; row++) {
+			attributes += items.getAttributeCount(row);
+		}
+		final String[] attrName = new String[attributes];
+		final int[] attrMin = new int[attributes];
+		final int[] attrMax = new int[attributes];
+
+		final WeightDictionary weights = items.getWeights();
+		int i = 0;
+		int a = 0;
+		for (int row : items.sortedByLevel()) {
+			ids[i] = items.getItemId(row);
+			lvl[i] = items.getLvl(row);
+			min[i] = items.getMinRank(row);
+			avg[i] = items.getAvgRank(row);
+			max[i] = items.getMaxRank(row);
+			offsets[i] = a;
+			final int offset = items.getAttributeOffset(row);
+			for (int attr = offset; attr < offset + items.getAttributeCount(row); attr++) {
+				attrName[a] = weights.getKey(items.getAttributeId(attr));
+				attrMin[a] = items.getAttributeMin(attr);
+				attrMax[a] = items.getAttributeMax(attr);
+				a++;
 			}
+			i++;
+		}
+		offsets[size] = a;
+
+		final String[] weightNames = new String[weights.size()];
+		for (int w = 0; w < weightNames.length; w++) {
+			weightNames[w] = weights.getKey(w);
+		}
+
+		final ColumnFile columns = new ColumnFile("items");
+		columns.addStrings("item_id", ids, size);
+		columns.addInts("lvl", lvl, size);
+		columns.addDoubles("min_rank", min, size);
+		columns.addDoubles("avg_rank", avg, size);
+		columns.addDoubles("max_rank", max, size);
+		columns.addInts("attr_offset", offsets, size + 1);
+		columns.addStrings("attr_name", attrName, attributes);
+		columns.addInts("attr_min", attrMin, attributes);
+		columns.addInts("attr_max", attrMax, attributes);
+		columns.addStrings("weight_name", weightNames, weightNames.length);
+		columns.addDoubles("weight", weights.getWeights(), weightNames.length);
+		columns.write(new File(Main.getOutDir(), file));
+	}
 
-			List<String> lore = (List<String>) values.get("lore");
+	static File getConfig() throws IOException {
+		final File f = new File(Main.getCwd(), CONFIG_FILE);
+		if (!f.exists()) {
+			f.createNewFile();
+		}
+		return f;
+	}
+
+	/**
+	 * @return the items directory, created if it does not exist
+	 */
+	public static File getItemsFolder() {
+		final File dir = new File(ITEMS_PATH);
+		if (!dir.isDirectory()) {
+			dir.mkdir();
+		}
+		return dir;
+	}
+
+	/**
+	 * Reads the lore of all items in the file
+	 *
+	 * @param f the file
+	 * @return the lore, key = item ID, value = lore lines
+	 * @throws IOException if the file could not be read
+	 */
+	static Map<String, List<String>> readLore(final File f) throws IOException {
+		try (Reader reader = ChannelFileReader.open(f)) {
+			return readLore(reader);
+		}
+	}
+
+	/**
+	 * Reads the lore of all items
+	 *
+	 * @param reader the content of an item file
+	 * @return the lore, key = item ID, value = lore lines
+	 */
+	static Map<String, List<String>> readLore(final Reader reader) {
+		final Map<String, List<String>> lore = new LinkedHashMap<>();
+		StreamingYamlReader.read(reader, LORE_KEYS, (itemId, values) -> {
+			if (values.get(LORE) instanceof List) {
+				lore.put(itemId, (List<String>) values.get(LORE));
+			}
+		});
+		return lore;
+	}
+
+	static ItemTable parseItems(Map<String, List<String>> map,
+	                                    final Blacklist blacklist,
+	                                    final WeightDictionary weights) {
+		// first check if the items are in the blacklist
+		final List<Map.Entry<String, List<String>>> kept = filter(map, blacklist);
+
+		final ItemTable items = new ItemTable(weights);
+		final LineScanner scanner = new LineScanner();
+		final Events.LoreParse event = new Events.LoreParse();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.LORE, event);
+		int lines = 0;
+		int matches = 0;
+		for (Map.Entry<String, List<String>> entry : kept) {
+			items.beginItem(entry.getKey());
+			List<String> lore = entry.getValue();
 			int lvl = 0;
 			for (String s : lore) {
 				if (s == null || s.isEmpty()) {
 					continue;
 				}
 
-				String attribute = "";
-				int min = 0;
-				int max = 0;
-				final Matcher attribMatcher = Attribute.ATTRIBUTE_PATTERN.matcher(s);
-				final Matcher classAttribMatcher = Attribute.CLASS_PATTERN.matcher(s);
-
-				// check for both attribute matchers
-				if (attribMatcher.find()) {
-					min = Integer.parseInt(attribMatcher.group(1));
-					try {
-						max = Integer.parseInt(attribMatcher.group(3));
-					} catch (NumberFormatException e) {
-						max = min;
-					}
-					attribute = attribMatcher.group(4);
-				} else if (classAttribMatcher.find()) {
-					attribute = classAttribMatcher.group(1);
-					min = Integer.parseInt(classAttribMatcher.group(2));
-					try {
-						max = Integer.parseInt(classAttribMatcher.group(4));
-					} catch (NumberFormatException e) {
-						max = min;
-					}
-				} else {
+				// check for both attribute patterns
+				lines++;
+				if (!scanner.scanAttribute(s)) {
 					continue;
 				}
+				matches++;
+				final String attribute = scanner.getName();
+				final int min = scanner.getMin();
+				final int max = scanner.getMax();
 
 				// the attribute is level requirement, set the level to it
 				if (attribute.equalsIgnoreCase("Potřebný Lvl")) {
 					lvl = min;
 				}
-				attributes.add(new Attribute(attribute, min, max));
+				items.addAttribute(weights.intern(attribute), min, max);
 			}
 
-			// add a new attribute once the attributes and lvl is parsed
-			items.add(new Item(itemId, attributes, lvl));
+			// finish the item once the attributes and lvl is parsed
+			items.endItem(lvl);
 		}
+		span.end(lines, 0);
+		event.source = "items";
+		event.records = kept.size();
+		event.lines = lines;
+		event.matches = matches;
+		event.misses = lines - matches;
+		event.commit();
 
 		return items;
 	}
 
-	private static void addToConfig(File f, Map<String, Double> map) throws IOException {
-		try (FileWriter fw = new FileWriter(f, StandardCharsets.UTF_8)) {
-			Main.getYaml().dump(map, fw);
+	/**
+	 * @param map       the lore of the items, key = item ID
+	 * @param blacklist the blacklist
+	 * @return the items that are not filtered, in the order of the map
+	 */
+	private static List<Map.Entry<String, List<String>>> filter(final Map<String, List<String>> map,
+	                                                           final Blacklist blacklist) {
+		final Events.BlacklistFilter event = new Events.BlacklistFilter();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.FILTER, event);
+		final List<Map.Entry<String, List<String>>> kept = new ArrayList<>(map.size());
+		for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+			if (blacklist.isFiltered(entry.getKey())) {
+				L.info("Filtered " + entry.getKey());
+				continue;
+			}
+			kept.add(entry);
 		}
+		span.end(map.size(), 0);
+		event.items = map.size();
+		event.filtered = map.size() - kept.size();
+		event.commit();
+		return kept;
+	}
+
+	static void addToConfig(File f, Map<String, Object> map) throws IOException {
+		ConfigWriter.addKeys(f, map);
 	}
 
 }
@@ -0,0 +1,322 @@
+package cz.helheim.items;
+
+import cz.helheim.LevelAggregate;
+import cz.helheim.LevelIndex;
+import cz.helheim.WeightDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The items stored column by column. Every item is a row, the attributes of all items are packed into
+ * shared attribute columns, and the attributes of a row are in the range given by the attribute offsets.
+ * <p>
+ * The table is built directly by the parser, {@link Item} and {@link Attribute} instances are only created on
+ * demand, see {@link #getItem(int)}.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ItemTable {
+	/**
+	 * The kinds of ranks in the level aggregate, see {@link #rank(LevelAggregate)}
+	 */
+	public static final int MIN_RANK = 0, AVG_RANK = 1, MAX_RANK = 2;
+
+	/**
+	 * The amount of kinds of ranks
+	 */
+	public static final int RANKS = 3;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final WeightDictionary weights;
+
+	// item columns
+	private String[] itemIds = new String[INITIAL_CAPACITY];
+	private int[] lvl = new int[INITIAL_CAPACITY];
+	private double[] minRank = new double[INITIAL_CAPACITY];
+	private double[] avgRank = new double[INITIAL_CAPACITY];
+	private double[] maxRank = new double[INITIAL_CAPACITY];
+	private int[] attrOffsets = new int[INITIAL_CAPACITY + 1];
+	private int size = 0;
+
+	// attribute columns
+	private int[] attrIds = new int[INITIAL_CAPACITY];
+	private int[] attrMin = new int[INITIAL_CAPACITY];
+	private int[] attrMax = new int[INITIAL_CAPACITY];
+	private int attrSize = 0;
+
+	/**
+	 * @param weights the weight dictionary the attribute IDs belong to
+	 */
+	public ItemTable(final WeightDictionary weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * Starts a new row. The attributes added until {@link #endItem(int)} belong to this item.
+	 *
+	 * @param itemId the item ID
+	 */
+	public void beginItem(final String itemId) {
+		if (size == itemIds.length) {
+			final int capacity = size * 2;
+			itemIds = Arrays.copyOf(itemIds, capacity);
+			lvl = Arrays.copyOf(lvl, capacity);
+			minRank = Arrays.copyOf(minRank, capacity);
+			avgRank = Arrays.copyOf(avgRank, capacity);
+			maxRank = Arrays.copyOf(maxRank, capacity);
+			attrOffsets = Arrays.copyOf(attrOffsets, capacity + 1);
+		}
+		itemIds[size] = itemId;
+	}
+
+	/**
+	 * Adds an attribute to the current row
+	 *
+	 * @param attrId the attribute ID in the weight dictionary
+	 * @param min    the min value
+	 * @param max    the max value
+	 */
+	public void addAttribute(final int attrId, final int min, final int max) {
+		if (attrSize == attrIds.length) {
+			final int capacity = attrSize * 2;
+			attrIds = Arrays.copyOf(attrIds, capacity);
+			attrMin = Arrays.copyOf(attrMin, capacity);
+			attrMax = Arrays.copyOf(attrMax, capacity);
+		}
+		attrIds[attrSize] = attrId;
+		attrMin[attrSize] = min;
+		attrMax[attrSize] = max;
+		attrSize++;
+	}
+
+	/**
+	 * Finishes the current row
+	 *
+	 * @param lvl the item level requirement
+	 */
+	public void endItem(final int lvl) {
+		this.lvl[size] = lvl;
+		size++;
+		attrOffsets[size] = attrSize;
+	}
+
+	/**
+	 * Ranks every item by the weights of its attributes and adds the ranks of ranked items (items with an avg
+	 * rank) to the level aggregate
+	 *
+	 * @param levels the level aggregate, see {@link #RANKS}
+	 */
+	public void rank(final LevelAggregate levels) {
+		final double[] w = weights.getWeights();
+		for (int row = 0; row < size; row++) {
+			double min = 0;
+			double avg = 0;
+			double max = 0;
+			for (int a = attrOffsets[row]; a < attrOffsets[row + 1]; a++) {
+				final double weight = w[attrIds[a]];
+				min += weight * attrMin[a];
+				avg += weight * ((attrMax[a] + attrMin[a]) / 2d);
+				max += weight * attrMax[a];
+			}
+			minRank[row] = min;
+			avgRank[row] = avg;
+			maxRank[row] = max;
+
+			if (avg > 0) {
+				levels.add(MIN_RANK, lvl[row], min);
+				levels.add(AVG_RANK, lvl[row], avg);
+				levels.add(MAX_RANK, lvl[row], max);
+			}
+		}
+	}
+
+	/**
+	 * Removes the items with no avg rank, i.e. items with no attributes, keeping the order of the rest
+	 */
+	public void removeUnranked() {
+		int newSize = 0;
+		int newAttrSize = 0;
+		for (int row = 0; row < size; row++) {
+			if (!(avgRank[row] > 0)) {
+				continue;
+			}
+
+			final int from = attrOffsets[row];
+			final int count = attrOffsets[row + 1] - from;
+			System.arraycopy(attrIds, from, attrIds, newAttrSize, count);
+			System.arraycopy(attrMin, from, attrMin, newAttrSize, count);
+			System.arraycopy(attrMax, from, attrMax, newAttrSize, count);
+
+			itemIds[newSize] = itemIds[row];
+			lvl[newSize] = lvl[row];
+			minRank[newSize] = minRank[row];
+			avgRank[newSize] = avgRank[row];
+			maxRank[newSize] = maxRank[row];
+			attrOffsets[newSize] = newAttrSize;
+			newAttrSize += count;
+			newSize++;
+		}
+		attrOffsets[newSize] = newAttrSize;
+		Arrays.fill(itemIds, newSize, size, null);
+		size = newSize;
+		attrSize = newAttrSize;
+	}
+
+	/**
+	 * Appends all rows of the other table, including their ranks
+	 *
+	 * @param other the other table, must use the same weight dictionary
+	 */
+	public void append(final ItemTable other) {
+		for (int row = 0; row < other.size; row++) {
+			beginItem(other.itemIds[row]);
+			for (int a = other.attrOffsets[row]; a < other.attrOffsets[row + 1]; a++) {
+				addAttribute(other.attrIds[a], other.attrMin[a], other.attrMax[a]);
+			}
+			minRank[size] = other.minRank[row];
+			avgRank[size] = other.avgRank[row];
+			maxRank[size] = other.maxRank[row];
+			endItem(other.lvl[row]);
+		}
+	}
+
+	/**
+	 * @return the rows sorted by level, rows with the same level keep their order
+	 */
+	public int[] sortedByLevel() {
+		// the level is never negative, so (level, row) packed into a long sorts by level, then by row
+		final long[] keys = new long[size];
+		for (int row = 0; row < size; row++) {
+			keys[row] = ((long) lvl[row] << 32) | row;
+		}
+		Arrays.sort(keys);
+
+		final int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = (int) keys[i];
+		}
+		return rows;
+	}
+
+	/**
+	 * Indexes the rows by level, by the attribute names and by the avg rank, see {@link LevelIndex}.
+	 * The index holds this table, the table must not change afterwards. The attribute names are copied, so the
+	 * index may be read on other threads while new keys are interned into the weight dictionary.
+	 *
+	 * @return the index, the indices are the rows
+	 */
+	public LevelIndex<Item> createIndex() {
+		final String[] names = weights.getKeys();
+		final LevelIndex.Builder builder = new LevelIndex.Builder(size);
+		final List<String> attributes = new ArrayList<>();
+		for (int row = 0; row < size; row++) {
+			attributes.clear();
+			for (int a = attrOffsets[row]; a < attrOffsets[row + 1]; a++) {
+				attributes.add(names[attrIds[a]]);
+			}
+			builder.add(lvl[row], avgRank[row], attributes);
+		}
+		return builder.build(row -> getItem(row, id -> names[id]));
+	}
+
+	/**
+	 * Creates an item out of the row
+	 *
+	 * @param row the row
+	 * @return the item
+	 */
+	public Item getItem(final int row) {
+		return getItem(row, weights::getKey);
+	}
+
+	private Item getItem(final int row, final IntFunction<String> names) {
+		final Collection<Attribute> attributes = new ArrayList<>(getAttributeCount(row));
+		for (int a = attrOffsets[row]; a < attrOffsets[row + 1]; a++) {
+			attributes.add(new Attribute(names.apply(attrIds[a]), attrMin[a], attrMax[a]));
+		}
+
+		final Item item = new Item(itemIds[row], attributes, lvl[row]);
+		item.setMinRank(minRank[row]);
+		item.setAvgRank(avgRank[row]);
+		item.setMaxRank(maxRank[row]);
+		return item;
+	}
+
+	/**
+	 * @return the amount of items
+	 */
+	public int size() {
+		return size;
+	}
+
+	public WeightDictionary getWeights() {
+		return weights;
+	}
+
+	public String getItemId(final int row) {
+		return itemIds[row];
+	}
+
+	public int getLvl(final int row) {
+		return lvl[row];
+	}
+
+	public double getMinRank(final int row) {
+		return minRank[row];
+	}
+
+	public double getAvgRank(final int row) {
+		return avgRank[row];
+	}
+
+	public double getMaxRank(final int row) {
+		return maxRank[row];
+	}
+
+	/**
+	 * @param row the row
+	 * @return the amount of attributes of the item
+	 */
+	public int getAttributeCount(final int row) {
+		return attrOffsets[row + 1] - attrOffsets[row];
+	}
+
+	/**
+	 * @param row the row
+	 * @return the index of the first attribute of the item in the attribute columns
+	 */
+	public int getAttributeOffset(final int row) {
+		return attrOffsets[row];
+	}
+
+	/**
+	 * @param index the index in the attribute columns
+	 * @return the attribute ID in the weight dictionary
+	 */
+	public int getAttributeId(final int index) {
+		return attrIds[index];
+	}
+
+	/**
+	 * @param index the index in the attribute columns
+	 * @return the attribute min value
+	 */
+	public int getAttributeMin(final int index) {
+		return attrMin[index];
+	}
+
+	/**
+	 * @param index the index in the attribute columns
+	 * @return the attribute max value
+	 */
+	public int getAttributeMax(final int index) {
+		return attrMax[index];
+	}
+}
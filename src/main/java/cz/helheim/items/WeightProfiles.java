@@ -0,0 +1,398 @@
+package cz.helheim.items;
+
+import cz.helheim.ChannelOutput;
+import cz.helheim.ChartWriter;
+import cz.helheim.Events;
+import cz.helheim.LevelAggregate;
+import cz.helheim.Main;
+import cz.helheim.OutputFormat;
+import cz.helheim.RunReport;
+import cz.helheim.WeightDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Ranks the items by many alternative attribute weightings (profiles) at once, for balancing. Every .yml file in
+ * the profiles directory is a profile in the format of items-config.yml, the attributes it does not have keep the
+ * weight of items-config.yml.
+ * <p>
+ * The items are parsed once, the item table is a sparse matrix of the items and their attribute values, see
+ * {@link ItemTable}, and the profiles are a dense matrix of the attributes and their weights, so ranking is one
+ * multiplication of the two. The profiles are compared by the avg rank only, the score of the items everywhere
+ * else, e.g. in the charts and the index. The profiles are split into blocks ranked in parallel, and every attribute value of
+ * an item is multiplied by the weights of all profiles of the block in one loop over a contiguous row of the
+ * block's weight matrix, so the items are read once per block instead of once per profile.
+ * <p>
+ * The outputs are the level curves of all profiles side by side, the place of every item among the items of its
+ * level by every profile and its change against items-config.yml, and a chart of the curves.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class WeightProfiles {
+	private static final Logger L = LogManager.getLogger(WeightProfiles.class);
+	private static final String PROFILES_PATH = "profiles";
+	private static final String BASE = "items-config";
+	/**
+	 * The kind of the avg rank in the level aggregates of the profiles
+	 */
+	private static final int RANK = 0;
+	/**
+	 * The amount of profiles ranked by one task of the parallel pass
+	 */
+	private static final int BLOCK = 8;
+
+	private final ItemTable table;
+	private final List<String> names;
+	private final int profiles;
+	// attribute ID * profiles + profile -> weight
+	private final double[] weights;
+	// profile -> row -> avg rank
+	private double[][] avgRanks = null;
+	// profile -> the avg ranks aggregated per level, see RANK
+	private LevelAggregate[] levels = null;
+
+	/**
+	 * @param table    the ranked items
+	 * @param profiles the profiles by name, key = the attribute, value = the weight
+	 */
+	public WeightProfiles(final ItemTable table, final Map<String, ? extends Map<String, ?>> profiles) {
+		this.table = table;
+		this.names = new ArrayList<>(profiles.keySet());
+		this.profiles = names.size();
+
+		final WeightDictionary dictionary = table.getWeights();
+		final int attributes = dictionary.size();
+		this.weights = new double[attributes * profiles.size()];
+		for (int p = 0; p < this.profiles; p++) {
+			final Map<String, ?> profile = profiles.get(names.get(p));
+			for (int id = 0; id < attributes; id++) {
+				final Object weight = profile.get(dictionary.getKey(id));
+				double w = dictionary.getWeight(id);
+				if (weight instanceof Number) {
+					w = ((Number) weight).doubleValue();
+				} else if (weight != null) {
+					L.error(String.format("Invalid line '%s: %s' in profile %s", dictionary.getKey(id), weight,
+							names.get(p)));
+					w = 0d;
+				}
+				weights[id * this.profiles + p] = w;
+			}
+		}
+	}
+
+	/**
+	 * Parses the items, ranks them by every profile in the profiles directory and dumps the results
+	 *
+	 * @throws IOException if an IO based operation failed
+	 */
+	public static void run() throws IOException {
+		final Map<String, Map<String, Object>> profiles = readProfiles(getProfilesFolder());
+		if (profiles.isEmpty()) {
+			L.warn(String.format("No weight profiles found in %s", getProfilesFolder().getAbsolutePath()));
+			return;
+		}
+
+		// parse and rank the items once, by items-config.yml
+		final ItemDataset items = ItemDataset.load();
+		final WeightProfiles weightProfiles = new WeightProfiles(items.getTable(), profiles);
+		weightProfiles.evaluate();
+
+		final String suffix = "-" + System.currentTimeMillis() + ".csv";
+		weightProfiles.dumpLevels("profiles" + suffix, items.getLevels());
+		weightProfiles.dumpRanks("profile-ranks" + suffix);
+		weightProfiles.createChart("profiles.svg", items.getLevels());
+	}
+
+	static File getProfilesFolder() {
+		final File dir = new File(Main.getCwd(), PROFILES_PATH);
+		if (!dir.isDirectory()) {
+			dir.mkdir();
+		}
+		return dir;
+	}
+
+	/**
+	 * @param dir the profiles directory
+	 * @return the profiles by name, i.e. the file name without .yml, sorted by name
+	 * @throws IOException if a profile could not be read
+	 */
+	static Map<String, Map<String, Object>> readProfiles(final File dir) throws IOException {
+		final File[] files = dir.listFiles((d, name) -> name.endsWith(".yml"));
+		final Map<String, Map<String, Object>> profiles = new TreeMap<>();
+		if (files == null) {
+			return profiles;
+		}
+		for (File f : files) {
+			final String name = f.getName().substring(0, f.getName().length() - ".yml".length());
+			profiles.put(name, Main.readFile(f, new LinkedHashMap<>()));
+		}
+		return profiles;
+	}
+
+	/**
+	 * Ranks the items by every profile
+	 */
+	public void evaluate() {
+		final int size = table.size();
+		final Events.ProfileEvaluation event = new Events.ProfileEvaluation();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.PROFILES, event);
+		avgRanks = new double[profiles][];
+		levels = new LevelAggregate[profiles];
+
+		// every block of profiles has its own ranks and level aggregates, nothing is merged
+		final int blocks = (profiles + BLOCK - 1) / BLOCK;
+		IntStream.range(0, blocks).parallel()
+				.forEach(b -> evaluate(b * BLOCK, Math.min(profiles, (b + 1) * BLOCK)));
+
+		span.end((long) size * profiles, 0);
+		event.profiles = profiles;
+		event.items = size;
+		event.attributes = size == 0 ? 0 : table.getAttributeOffset(size - 1) + table.getAttributeCount(size - 1);
+		event.commit();
+	}
+
+	/**
+	 * Ranks all rows by the profiles from (inclusive) to (exclusive), the avg rank the same way as
+	 * {@link ItemTable#rank(LevelAggregate)}
+	 */
+	private void evaluate(final int from, final int to) {
+		final int size = table.size();
+		final int n = to - from;
+		final int attributes = weights.length / profiles;
+		// the weights of the block, attribute ID * n + profile - from
+		final double[] w = new double[attributes * n];
+		for (int id = 0; id < attributes; id++) {
+			System.arraycopy(weights, id * profiles + from, w, id * n, n);
+		}
+		final double[][] ranks = new double[n][size];
+		final LevelAggregate[] aggregates = new LevelAggregate[n];
+		for (int p = 0; p < n; p++) {
+			aggregates[p] = new LevelAggregate(1);
+		}
+
+		final double[] avg = new double[n];
+		for (int row = 0; row < size; row++) {
+			Arrays.fill(avg, 0d);
+			final int offset = table.getAttributeOffset(row);
+			final int end = offset + table.getAttributeCount(row);
+			for (int a = offset; a < end; a++) {
+				final int weight = table.getAttributeId(a) * n;
+				final double mid = (table.getAttributeMax(a) + table.getAttributeMin(a)) / 2d;
+				for (int p = 0; p < n; p++) {
+					avg[p] += w[weight + p] * mid;
+				}
+			}
+
+			final int lvl = table.getLvl(row);
+			for (int p = 0; p < n; p++) {
+				ranks[p][row] = avg[p];
+				if (avg[p] > 0) {
+					aggregates[p].add(RANK, lvl, avg[p]);
+				}
+			}
+		}
+		System.arraycopy(ranks, 0, avgRanks, from, n);
+		System.arraycopy(aggregates, 0, levels, from, n);
+	}
+
+	/**
+	 * @return the profile names, in the order of the profile indices
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * @param profile the profile index
+	 * @return the avg ranks by the profile aggregated per level, the only kind of values is 0
+	 */
+	public LevelAggregate getLevels(final int profile) {
+		return levels[profile];
+	}
+
+	/**
+	 * @param profile the profile index
+	 * @param row     the row in the item table
+	 * @return the avg rank of the item by the profile
+	 */
+	public double getAvgRank(final int profile, final int row) {
+		return avgRanks[profile][row];
+	}
+
+	/**
+	 * The place of every item among the items of the same level, 1 for the highest score, items with the same score
+	 * share the place
+	 *
+	 * @param scores row -> score
+	 * @param rows   the rows sorted by level, see {@link ItemTable#sortedByLevel()}
+	 * @return row -> place
+	 */
+	private int[] places(final double[] scores, final int[] rows) {
+		final int[] places = new int[rows.length];
+		final double[] sorted = new double[rows.length];
+		for (int start = 0, end; start < rows.length; start = end) {
+			final int lvl = table.getLvl(rows[start]);
+			end = start;
+			while (end < rows.length && table.getLvl(rows[end]) == lvl) {
+				sorted[end] = scores[rows[end]];
+				end++;
+			}
+			Arrays.sort(sorted, start, end);
+			for (int i = start; i < end; i++) {
+				// the items of the level with a higher score are after the last one with an equal score
+				int lo = start;
+				int hi = end;
+				final double score = scores[rows[i]];
+				while (lo < hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (sorted[mid] <= score) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+				places[rows[i]] = end - lo + 1;
+			}
+		}
+		return places;
+	}
+
+	/**
+	 * Dumps the level curves of items-config.yml and all profiles side by side into a CSV file, one row per level,
+	 * the columns are the count, the mean and the median of the avg rank by each of them
+	 *
+	 * @param file the file name
+	 * @param base the ranks by items-config.yml aggregated per level
+	 * @throws IOException if the curves could not be dumped
+	 */
+	void dumpLevels(final String file, final LevelAggregate base) throws IOException {
+		int maxLevels = base.getLevels();
+		for (LevelAggregate l : levels) {
+			maxLevels = Math.max(maxLevels, l.getLevels());
+		}
+
+		final StringBuilder sb = new StringBuilder("lvl");
+		header(sb, BASE, "_count", "_avg_rank", "_median_rank");
+		for (String name : names) {
+			header(sb, name, "_count", "_avg_rank", "_median_rank");
+		}
+		try (ChannelOutput out = new ChannelOutput(new File(Main.getOutDir(), file))) {
+			out.putText(sb.append('\n'));
+			for (int lvl = 0; lvl < maxLevels; lvl++) {
+				boolean empty = base.getCount(ItemTable.AVG_RANK, lvl) == 0;
+				for (int p = 0; p < profiles && empty; p++) {
+					empty = levels[p].getCount(RANK, lvl) == 0;
+				}
+				if (empty) {
+					continue;
+				}
+
+				sb.setLength(0);
+				sb.append(lvl);
+				curve(sb, base, ItemTable.AVG_RANK, lvl);
+				for (LevelAggregate l : levels) {
+					curve(sb, l, RANK, lvl);
+				}
+				out.putText(sb.append('\n'));
+			}
+		}
+	}
+
+	private static void curve(final StringBuilder sb, final LevelAggregate levels, final int kind, final int lvl) {
+		final long count = levels.getCount(kind, lvl);
+		sb.append(',').append(count).append(',');
+		if (count > 0) {
+			sb.append(levels.getMean(kind, lvl)).append(',').append(levels.getQuantile(kind, lvl, 0.5));
+		} else {
+			sb.append(',');
+		}
+	}
+
+	/**
+	 * Dumps the avg rank and the place in the level of every item by items-config.yml and all profiles side by side
+	 * into a CSV file, one row per item sorted by level. The change is the amount of places the item moved up by
+	 * the profile, negative if it moved down.
+	 *
+	 * @param file the file name
+	 * @throws IOException if the ranks could not be dumped
+	 */
+	void dumpRanks(final String file) throws IOException {
+		final int size = table.size();
+		final int[] rows = table.sortedByLevel();
+		final double[] baseRanks = new double[size];
+		for (int row = 0; row < size; row++) {
+			baseRanks[row] = table.getAvgRank(row);
+		}
+		final int[] basePlaces = places(baseRanks, rows);
+		final int[][] places = new int[profiles][];
+		IntStream.range(0, profiles).parallel().forEach(p -> places[p] = places(avgRanks[p], rows));
+
+		final StringBuilder sb = new StringBuilder("item_id,lvl");
+		header(sb, BASE, "_avg_rank", "_place");
+		for (String name : names) {
+			header(sb, name, "_avg_rank", "_place", "_change");
+		}
+		try (ChannelOutput out = new ChannelOutput(new File(Main.getOutDir(), file))) {
+			out.putText(sb.append('\n'));
+			for (int row : rows) {
+				sb.setLength(0);
+				sb.append(OutputFormat.csvField(table.getItemId(row))).append(',')
+						.append(table.getLvl(row)).append(',')
+						.append(baseRanks[row]).append(',')
+						.append(basePlaces[row]);
+				for (int p = 0; p < profiles; p++) {
+					sb.append(',').append(avgRanks[p][row])
+							.append(',').append(places[p][row])
+							.append(',').append(basePlaces[row] - places[p][row]);
+				}
+				out.putText(sb.append('\n'));
+			}
+		}
+	}
+
+	private static void header(final StringBuilder sb, final String name, final String... columns) {
+		for (String column : columns) {
+			sb.append(',').append(OutputFormat.csvField(name + column));
+		}
+	}
+
+	/**
+	 * Creates a line chart of the mean avg rank per level by items-config.yml and every profile, of the levels
+	 * with enough items, see {@link ItemStatistics#THRESHOLD}
+	 *
+	 * @param fileName the file name
+	 * @param base     the ranks by items-config.yml aggregated per level
+	 * @throws IOException if the chart could not be created
+	 */
+	void createChart(final String fileName, final LevelAggregate base) throws IOException {
+		final XYSeriesCollection ds = new XYSeriesCollection();
+		ds.addSeries(series(BASE, base, ItemTable.AVG_RANK));
+		for (int p = 0; p < profiles; p++) {
+			ds.addSeries(series(names.get(p), levels[p], RANK));
+		}
+		final JFreeChart chart = ChartFactory.createXYLineChart("Item avg rank / level by weight profile",
+				"Level requirement", "Item avg rank", ds);
+		ChartWriter.write(fileName, chart);
+	}
+
+	private static XYSeries series(final String name, final LevelAggregate levels, final int kind) {
+		final XYSeries series = new XYSeries(name);
+		for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+			if (levels.getCount(kind, lvl) >= ItemStatistics.THRESHOLD) {
+				series.add(lvl, levels.getMean(kind, lvl));
+			}
+		}
+		return series;
+	}
+}
@@ -4,7 +4,8 @@ import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
- * An enchantment on an item
+ * An enchantment on an item. It is immutable, the same instance is shared by every item with the enchantment of
+ * the level, see {@link EquipmentIndex#enchantment(String, int, double)}.
  *
  * @author Jakub Šmrha
  * @version 1.0
@@ -12,12 +13,12 @@ import java.util.regex.Pattern;
  */
 public class Enchantment {
 	/**
-	 * this pattern looks for a key:value pair, value being a number
+	 * this pattern looks for a key:value pair, value being a number, parsed by {@link cz.helheim.LineScanner}
 	 */
 	public static final Pattern ENCHANTMENT_PATTERN = Pattern.compile("(.*):(\\d+)");
-	private String enchantmentId;
-	private int level;
-	private double weight;
+	private final String enchantmentId;
+	private final int level;
+	private final double weight;
 
 	/**
 	 * @param enchantmentId the enchantment ID
@@ -62,23 +63,11 @@ public class Enchantment {
 		return enchantmentId;
 	}
 
-	public void setEnchantmentId(final String enchantmentId) {
-		this.enchantmentId = enchantmentId;
-	}
-
 	public int getLevel() {
 		return level;
 	}
 
-	public void setLevel(final int level) {
-		this.level = level;
-	}
-
 	public double getWeight() {
 		return weight;
 	}
-
-	public void setWeight(final double weight) {
-		this.weight = weight;
-	}
 }
@@ -0,0 +1,156 @@
+package cz.helheim.mobs;
+
+import cz.helheim.LineScanner;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The mob items by a dense index, so that a mob keeps its equipment as an int[] of the indices, see
+ * {@link Mob#getEquipment()}. An equipment line ("{equipment}:{slot}") is scanned and looked up once, the following
+ * occurrences of the same line cost a single hash lookup and no allocation.
+ * <p>
+ * The enchantments are flyweights, every (enchantment, level) pair is a single shared instance, see
+ * {@link #enchantment(String, int, double)}, an enchantment is immutable.
+ * <p>
+ * The index is filled by a single thread when parsing, see {@link MobStatistics#parseItemFiles(Map,
+ * cz.helheim.WeightDictionary)}, and only read afterwards.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class EquipmentIndex {
+	/**
+	 * The line does not contain an equipment ID, see {@link #resolve(String)}
+	 */
+	public static final int INVALID = -1;
+	/**
+	 * The line references an equipment ID that is not an item, see {@link #resolve(String)}
+	 */
+	public static final int MISSING = -2;
+	// the enchantments above this level are not shared, the levels are rarely this high
+	private static final int MAX_SHARED_LEVEL = 255;
+
+	private final Map<String, Integer> ids = new HashMap<>();
+	// the equipment line -> the index or INVALID / MISSING
+	private final Map<String, Integer> lines = new HashMap<>();
+	private MobItem[] items = new MobItem[16];
+	private int size = 0;
+	// the enchantment ID -> its dense ID, the dense ID -> level -> the shared enchantment
+	private final Map<String, Integer> enchantmentIds = new HashMap<>();
+	private Enchantment[][] enchantments = new Enchantment[16][];
+
+	/**
+	 * Adds the item, its ID resolves to the item added last
+	 *
+	 * @param item the item
+	 * @return the index of the item
+	 */
+	public int add(final MobItem item) {
+		if (size == items.length) {
+			items = Arrays.copyOf(items, size * 2);
+		}
+		items[size] = item;
+		ids.put(item.getId(), size);
+		lines.clear();
+		return size++;
+	}
+
+	/**
+	 * @param id the equipment ID
+	 * @return the index of the item or {@link #MISSING}
+	 */
+	public int indexOf(final String id) {
+		final Integer index = ids.get(id);
+		return index == null ? MISSING : index;
+	}
+
+	/**
+	 * Resolves the equipment line ("{equipment}:{slot}") to the index of the item, the line is scanned only the
+	 * first time it is resolved
+	 *
+	 * @param line the equipment line
+	 * @return the index of the item, {@link #INVALID} if the line does not contain an equipment ID or
+	 * {@link #MISSING} if there is no such item
+	 */
+	public int resolve(final String line) {
+		final Integer index = lines.get(line);
+		if (index != null) {
+			return index;
+		}
+		final String id = LineScanner.scanEquipmentId(line);
+		final int resolved = id == null ? INVALID : indexOf(id);
+		lines.put(line, resolved);
+		return resolved;
+	}
+
+	/**
+	 * @param index the index of the item
+	 * @return the item
+	 */
+	public MobItem get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for %d items", index, size));
+		}
+		return items[index];
+	}
+
+	/**
+	 * @return the amount of items
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param indices the indices of the items
+	 * @return the items, a view backed by the indices
+	 */
+	public List<MobItem> getAll(final int[] indices) {
+		return new AbstractList<>() {
+			@Override
+			public MobItem get(final int i) {
+				return EquipmentIndex.this.get(indices[i]);
+			}
+
+			@Override
+			public int size() {
+				return indices.length;
+			}
+		};
+	}
+
+	/**
+	 * Gets the shared enchantment of the level, the enchantment is created the first time its ID and level are seen
+	 *
+	 * @param name   the enchantment ID
+	 * @param level  the enchantment level
+	 * @param weight the weight of the enchantment, only used when it is created
+	 * @return the enchantment
+	 */
+	public Enchantment enchantment(final String name, final int level, final double weight) {
+		if (level < 0 || level > MAX_SHARED_LEVEL) {
+			return new Enchantment(name, level, weight);
+		}
+		final int id = enchantmentIds.computeIfAbsent(name, n -> enchantmentIds.size());
+		if (id >= enchantments.length) {
+			enchantments = Arrays.copyOf(enchantments, Math.max(id + 1, enchantments.length * 2));
+		}
+		Enchantment[] levels = enchantments[id];
+		if (levels == null) {
+			levels = enchantments[id] = new Enchantment[Math.min(level + 8, MAX_SHARED_LEVEL + 1)];
+		} else if (level >= levels.length) {
+			levels = enchantments[id] = Arrays.copyOf(levels, Math.min(Math.max(level + 1, levels.length * 2),
+					MAX_SHARED_LEVEL + 1));
+		}
+		Enchantment enchantment = levels[level];
+		if (enchantment == null) {
+			enchantment = levels[level] = new Enchantment(name, level, weight);
+		}
+		return enchantment;
+	}
+}
@@ -1,8 +1,8 @@
 package cz.helheim.mobs;
 
-import java.util.ArrayList;
+import cz.helheim.LineScanner;
+
 import java.util.Collection;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -15,7 +15,7 @@ import java.util.regex.Pattern;
 public class Mob implements Comparable<Mob> {
 	// &8[&4Lv. 25&8]&c Efrít
 	/**
-	 * the pattern looks for {colour}[{colour}Lv. {level}{colour}]{colour} {name}
+	 * the pattern looks for {colour}[{colour}Lv. {level}{colour}]{colour} {name}, parsed by {@link LineScanner}
 	 */
 	public static final Pattern NAME_PATTERN = Pattern.compile("..\\[&.Lv\\. (\\d+)&.][ ]*&.[ ]*(.*)");
 	private String mobId;
@@ -24,7 +24,11 @@ public class Mob implements Comparable<Mob> {
 	private int damage;
 	private int lvl;
 	private double weight;
-	private Collection<MobItem> mobItems = new ArrayList<>();
+	// the item modifications the weight was computed at, see MobItem#modifications()
+	private int weighed;
+	// the equipment is kept as the indices of the items, see EquipmentIndex
+	private EquipmentIndex index;
+	private int[] equipment;
 
 	/**
 	 * @param mobId    the mob ID
@@ -35,18 +39,27 @@ public class Mob implements Comparable<Mob> {
 	 */
 	public Mob(final String mobId, final String mobName, final int health, final int damage,
 	           final Collection<MobItem> mobItems) {
-		this.weight = 0;
+		this(mobId, mobName, health, damage, index(mobItems), range(mobItems.size()));
+	}
+
+	/**
+	 * @param mobId     the mob ID
+	 * @param mobName   the mob name
+	 * @param health    the mob health
+	 * @param damage    the mob damage
+	 * @param index     the items
+	 * @param equipment the mob equipment, the indices of the items
+	 */
+	public Mob(final String mobId, final String mobName, final int health, final int damage,
+	           final EquipmentIndex index, final int[] equipment) {
 		this.mobId = mobId;
 		this.mobName = mobName;
 		this.health = health;
 		this.damage = damage;
-		final Matcher m = NAME_PATTERN.matcher(mobName);
-		if (!m.find()) {
-			this.lvl = 0;
-		} else {
-			this.lvl = Integer.parseInt(m.group(1));
-		}
-		this.mobItems.addAll(mobItems);
+		this.lvl = LineScanner.scanLevel(mobName);
+		this.index = index;
+		this.equipment = equipment;
+		computeWeight();
 	}
 
 	public int getLvl() {
@@ -64,7 +77,7 @@ public class Mob implements Comparable<Mob> {
 		sb.append(", mobName='").append(mobName).append('\'');
 		sb.append(", health=").append(health);
 		sb.append(", damage=").append(damage);
-		sb.append(", equipment=").append(mobItems);
+		sb.append(", equipment=").append(getEquipment());
 		sb.append('}');
 		return sb.toString();
 	}
@@ -91,6 +104,7 @@ public class Mob implements Comparable<Mob> {
 
 	public void setHealth(final int health) {
 		this.health = health;
+		computeWeight();
 	}
 
 	public int getDamage() {
@@ -99,14 +113,45 @@ public class Mob implements Comparable<Mob> {
 
 	public void setDamage(final int damage) {
 		this.damage = damage;
+		computeWeight();
 	}
 
+	/**
+	 * @return the equipment, a view backed by the indices of the items
+	 */
 	public Collection<MobItem> getEquipment() {
-		return mobItems;
+		return index.getAll(equipment);
 	}
 
+	/**
+	 * Sets the equipment, the items get an index of their own
+	 *
+	 * @param mobItems the equipment
+	 */
 	public void setEquipment(final Collection<MobItem> mobItems) {
-		this.mobItems = mobItems;
+		this.index = index(mobItems);
+		this.equipment = range(mobItems.size());
+		computeWeight();
+	}
+
+	/**
+	 * @param mobItems the items
+	 * @return an index of the items, the index of an item is its position
+	 */
+	private static EquipmentIndex index(final Collection<MobItem> mobItems) {
+		final EquipmentIndex index = new EquipmentIndex();
+		for (MobItem eq : mobItems) {
+			index.add(eq);
+		}
+		return index;
+	}
+
+	private static int[] range(final int size) {
+		final int[] range = new int[size];
+		for (int i = 0; i < size; i++) {
+			range[i] = i;
+		}
+		return range;
 	}
 
 	@Override
@@ -115,24 +160,27 @@ public class Mob implements Comparable<Mob> {
 	}
 
 	/**
-	 * Calculates the weight and returns it. This is a getter because of serialization!
+	 * The weight is computed when the health, the damage or the equipment is set, from the total weights of the
+	 * items. It is computed again when the weight of an item changed since, see {@link MobItem#modifications()}.
+	 * This is a getter because of serialization!
 	 *
 	 * @return the weight
 	 */
 	public double getWeight() {
-		this.weight = 0;
-		for (MobItem eq : mobItems) {
-			weight += eq.getWeight();
-			for (Enchantment ench : eq.getEnchantments()) {
-				weight += ench.getWeight() * ench.getLevel();
-			}
+		if (weighed != MobItem.modifications()) {
+			computeWeight();
 		}
-		weight += health;
-		weight += damage;
 		return weight;
 	}
 
-	public void setWeight(double weight) {
-		this.weight = weight;
+	private void computeWeight() {
+		// read before the items, a change while summing is noticed on the next get
+		final int modifications = MobItem.modifications();
+		double weight = 0;
+		for (int eq : equipment) {
+			weight += index.get(eq).getTotalWeight();
+		}
+		this.weight = weight + health + damage;
+		this.weighed = modifications;
 	}
 }
@@ -0,0 +1,247 @@
+package cz.helheim.mobs;
+
+import cz.helheim.Dataset;
+import cz.helheim.FileRecords;
+import cz.helheim.LevelAggregate;
+import cz.helheim.LevelIndex;
+import cz.helheim.Main;
+import cz.helheim.OutputFormat;
+import cz.helheim.Pipeline;
+import cz.helheim.StreamingYamlReader;
+import cz.helheim.WeightDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The mobs of every mob file and the equipment they use. Each mob file keeps its own mobs and level aggregate,
+ * so that a changed mob file is subtracted from the total and added again, instead of parsing all mobs again.
+ * A change of the equipment or the weights weighs all mobs again, from the records kept in memory.
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+public final class MobDataset implements Dataset {
+	private static final String ITEMS_CACHE_FILE = "mob-items.bin";
+	private static final String MOBS_CACHE_FILE = "mobs.bin";
+
+	private final File itemsDir;
+	private final File mobsDir;
+	private final File config;
+	private final FileRecords<Map<String, Object>> items = new FileRecords<>();
+	private final FileRecords<Map<String, Object>> mobs = new FileRecords<>();
+	private final Map<File, Contribution> contributions = new HashMap<>();
+	private WeightDictionary weights;
+	private EquipmentIndex equipment;
+	private LevelAggregate levels;
+	private LevelIndex<Mob> index = null;
+
+	private MobDataset(final File itemsDir, final File mobsDir, final File config) {
+		this.itemsDir = itemsDir;
+		this.mobsDir = mobsDir;
+		this.config = config;
+	}
+
+	/**
+	 * Loads the config file, all item files and all mob files, the files that did not change since the last run
+	 * are read from the parse cache
+	 *
+	 * @return the mobs
+	 * @throws IOException if a file could not be read
+	 */
+	public static MobDataset load() throws IOException {
+		final MobDataset mobs = new MobDataset(MobStatistics.getItemsFolder().getAbsoluteFile(),
+				MobStatistics.getActualMobsFolder().getAbsoluteFile(), MobStatistics.getConfig().getAbsoluteFile());
+		mobs.reload();
+		return mobs;
+	}
+
+	@Override
+	public void reload() throws IOException {
+		// if the weight of the equipment a mob uses does not exist, it is added with weight of 1 when dumping
+		// the new weight will later be written to the config file
+		weights = readWeights();
+		reload(items, MobStatistics.loadAll(itemsDir, ITEMS_CACHE_FILE, MobStatistics.ITEM_KEYS));
+		reload(mobs, MobStatistics.loadAll(mobsDir, MOBS_CACHE_FILE, MobStatistics.MOB_KEYS));
+		parseAll();
+	}
+
+	private static void reload(final FileRecords<Map<String, Object>> records,
+	                           final Map<File, Map<String, Map<String, Object>>> loaded) {
+		for (File f : new ArrayList<>(records.getFiles())) {
+			if (!loaded.containsKey(f)) {
+				records.remove(f);
+			}
+		}
+		for (Map.Entry<File, Map<String, Map<String, Object>>> e : loaded.entrySet()) {
+			records.put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public Collection<File> getDirectories() {
+		return List.of(itemsDir, mobsDir);
+	}
+
+	@Override
+	public boolean update(final File f) throws IOException {
+		if (f.equals(config)) {
+			final WeightDictionary weights = readWeights();
+			if (weights.toMap().equals(this.weights.toMap())) {
+				return false;
+			}
+			this.weights = weights;
+			parseAll();
+			return true;
+		}
+		if (!f.getName().endsWith(".yml")) {
+			return false;
+		}
+
+		if (f.toPath().startsWith(itemsDir.toPath())) {
+			final Set<File> affected = f.isFile()
+					? items.put(f, StreamingYamlReader.read(f, MobStatistics.ITEM_KEYS))
+					: items.remove(f);
+			if (affected.isEmpty()) {
+				return false;
+			}
+			// any mob may use the changed equipment
+			parseAll();
+			return true;
+		}
+		if (f.toPath().startsWith(mobsDir.toPath())) {
+			final Set<File> affected = f.isFile()
+					? mobs.put(f, StreamingYamlReader.read(f, MobStatistics.MOB_KEYS))
+					: mobs.remove(f);
+			for (File a : affected) {
+				parse(a);
+			}
+			levels.refresh(partials());
+			return !affected.isEmpty();
+		}
+		return false;
+	}
+
+	private WeightDictionary readWeights() throws IOException {
+		return new WeightDictionary(Main.readFile(config, new LinkedHashMap<>()), 1d);
+	}
+
+	private void parseAll() {
+		equipment = MobStatistics.parseItemFiles(items.merged(), weights);
+		levels = new LevelAggregate(1);
+		contributions.clear();
+		index = null;
+		for (File f : mobs.getFiles()) {
+			parse(f);
+		}
+	}
+
+	/**
+	 * Parses the mobs of the file again, replacing its previous contribution to the level aggregate
+	 */
+	private void parse(final File f) {
+		index = null;
+		final Contribution previous = contributions.remove(f);
+		if (previous != null) {
+			levels.subtract(previous.levels);
+		}
+		if (!mobs.contains(f)) {
+			return;
+		}
+
+		final List<Mob> fileMobs = MobStatistics.parseMobFiles(mobs.getRecords(f), equipment);
+		final LevelAggregate fileLevels = MobStatistics.aggregate(fileMobs);
+		contributions.put(f, new Contribution(fileMobs, fileLevels));
+		levels.merge(fileLevels);
+	}
+
+	private Collection<LevelAggregate> partials() {
+		final Collection<LevelAggregate> partials = new ArrayList<>(contributions.size());
+		for (Contribution c : contributions.values()) {
+			partials.add(c.levels);
+		}
+		return partials;
+	}
+
+	/**
+	 * @return the mobs of all files, ordered by file path
+	 */
+	public List<Mob> getMobs() {
+		final List<Mob> all = new ArrayList<>();
+		for (File f : mobs.getFiles()) {
+			all.addAll(contributions.get(f).mobs);
+		}
+		return all;
+	}
+
+	/**
+	 * The index of the mobs for queries, e.g. the mobs between level 20 and 30 with the equipment 'sword', the
+	 * heaviest first:
+	 * <pre>
+	 * mobs.getIndex().query().levels(20, 30).with("sword").orderBy(LevelIndex.Order.SCORE).list()
+	 * </pre>
+	 * The index is built on the first query after the mobs changed, the score is the weight and the keys are the
+	 * equipment IDs.
+	 *
+	 * @return the index, the indices are the indices in {@link #getMobs()}
+	 */
+	public LevelIndex<Mob> getIndex() {
+		if (index == null) {
+			index = MobStatistics.createIndex(getMobs());
+		}
+		return index;
+	}
+
+	/**
+	 * @return the mob weights aggregated per level
+	 */
+	public LevelAggregate getLevels() {
+		return levels;
+	}
+
+	@Override
+	public CompletableFuture<Void> dump(final Executor executor) {
+		final List<CompletableFuture<Void>> stages = new ArrayList<>(3 + OutputFormat.values().length);
+
+		// write the new weights to the config
+		final List<Mob> all = getMobs();
+		MobStatistics.addWeights(all, weights);
+		if (weights.isDirty()) {
+			final WeightDictionary weights = this.weights;
+			final Map<String, Object> map = weights.toMap();
+			final int size = weights.size();
+			stages.add(Pipeline.run(() -> {
+				MobStatistics.addToConfig(config, map);
+				weights.markWritten(size);
+			}, executor));
+		}
+
+		// dump the mobs to a file and create a chart out of it
+		final String mobsFile = "mobs-" + System.currentTimeMillis() + ".";
+		for (OutputFormat format : Main.getOutputFormats()) {
+			stages.add(Pipeline.run(() -> MobStatistics.dumpMobs(mobsFile + format.getExtension(), all, format),
+					executor));
+		}
+		stages.add(Pipeline.run(() -> MobStatistics.dumpLevels("mob-levels-" + System.currentTimeMillis() + ".yml",
+				levels), executor));
+		stages.add(Pipeline.run(() -> MobStatistics.createChart("mobs.svg", levels), executor));
+		return CompletableFuture.allOf(stages.toArray(new CompletableFuture[0]));
+	}
+
+	/**
+	 * The mobs of a single file and their weights aggregated per level
+	 */
+	private static class Contribution {
+		private final List<Mob> mobs;
+		private final LevelAggregate levels;
+
+		private Contribution(final List<Mob> mobs, final LevelAggregate levels) {
+			this.mobs = mobs;
+			this.levels = levels;
+		}
+	}
+}
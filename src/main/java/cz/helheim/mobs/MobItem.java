@@ -1,8 +1,10 @@
 package cz.helheim.mobs;
 
+import java.beans.Transient;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -14,13 +16,17 @@ import java.util.regex.Pattern;
  */
 public class MobItem {
 	/**
-	 * the pattern that looks for equipment:slot
+	 * the pattern that looks for equipment:slot, parsed by {@link cz.helheim.LineScanner}
 	 */
 	public static final Pattern EQUIPMENT_PATTERN = Pattern.compile("(.+):\\d+");
+	// bumped whenever the weight of any item changes, the mobs recompute their weight when it differs, see Mob
+	private static final AtomicInteger MODIFICATIONS = new AtomicInteger();
 	private String id;
 	private int itemId;
 	private double weight;
 	private Collection<Enchantment> enchantments = new ArrayList<>();
+	// the weight with the enchantments, shared by every mob wearing the item
+	private double totalWeight;
 
 	/**
 	 * @param id           the config ID
@@ -34,6 +40,7 @@ public class MobItem {
 		this.itemId = itemId;
 		this.weight = weight;
 		this.enchantments.addAll(enchantments);
+		this.totalWeight = computeTotalWeight();
 	}
 
 	public String getId() {
@@ -58,6 +65,8 @@ public class MobItem {
 
 	public void setWeight(final double weight) {
 		this.weight = weight;
+		this.totalWeight = computeTotalWeight();
+		MODIFICATIONS.incrementAndGet();
 	}
 
 	public Collection<Enchantment> getEnchantments() {
@@ -66,6 +75,35 @@ public class MobItem {
 
 	public void setEnchantments(final Collection<Enchantment> enchantments) {
 		this.enchantments = enchantments;
+		this.totalWeight = computeTotalWeight();
+		MODIFICATIONS.incrementAndGet();
+	}
+
+	/**
+	 * The weight of the item plus the weight of each enchantment times its level. It is computed when the weight or
+	 * the enchantments are set, the enchantments are immutable, but a collection changed in place is not noticed until
+	 * the enchantments are set again. It is transient, so it is not serialized.
+	 *
+	 * @return the total weight
+	 */
+	@Transient
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * @return the amount of times the weight of an item changed, a mob caches its weight until this changes
+	 */
+	static int modifications() {
+		return MODIFICATIONS.get();
+	}
+
+	private double computeTotalWeight() {
+		double total = weight;
+		for (Enchantment ench : enchantments) {
+			total += ench.getWeight() * ench.getLevel();
+		}
+		return total;
 	}
 
 	@Override
@@ -1,6 +1,21 @@
 package cz.helheim.mobs;
 
+import cz.helheim.ChannelOutput;
+import cz.helheim.ChartWriter;
+import cz.helheim.ColumnFile;
+import cz.helheim.ConfigWriter;
+import cz.helheim.Events;
+import cz.helheim.FileLoader;
+import cz.helheim.LevelAggregate;
+import cz.helheim.LevelIndex;
+import cz.helheim.LineScanner;
 import cz.helheim.Main;
+import cz.helheim.OutputFormat;
+import cz.helheim.ParseCache;
+import cz.helheim.RunReport;
+import cz.helheim.StreamingYamlReader;
+import cz.helheim.WeightDictionary;
+import cz.helheim.YamlStreamWriter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jfree.chart.ChartFactory;
@@ -9,12 +24,8 @@ import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
 
 /**
  * The "main" of mob statistics
@@ -28,174 +39,443 @@ public class MobStatistics {
 	private static final String ITEMS_PATH = "items";
 	private static final String ACTUAL_MOBS_PATH = "actual-mobs";
 	private static final String CONFIG_FILE = "mob-config.yml";
+	static final Set<String> ITEM_KEYS = Set.of("Id", "Enchantments");
+	static final Set<String> MOB_KEYS = Set.of("Health", "Damage", "Display", "Equipment");
 	private static final Logger L = LogManager.getLogger(MobStatistics.class);
 
+	// the mobs above this level are not in the chart
+	private static final int MAX_LEVEL = 60;
+	/**
+	 * The kind of the mob weight in the level aggregate
+	 */
+	public static final int WEIGHT = 0;
+
 	/**
 	 * The "main"
 	 *
 	 * @throws IOException if an IO based operation failed
 	 */
 	public static void parseMobs() throws IOException {
-		// get weights from config
-		final Map<String, Double> weights = Main.readFile(getConfig(), new LinkedHashMap<>());
+		// get weights from config, parse the items and the mobs
+		final MobDataset mobs = MobDataset.load();
 
-		// parse and sort mobs by level
-		final List<Mob> mobs = parseMobFiles(parseItemFiles(weights));
-		mobs.sort(Mob::compareTo);
+		// write the new weights to the config, dump the mobs to a file and create a chart out of it
+		mobs.dump();
+	}
 
-		// dump it to a map
-		final Map<String, Mob> dumpMap = new LinkedHashMap<>();
-		for (Mob m : mobs) {
-			for (final MobItem eq : m.getEquipment()) {
-				// if the weight does not exist, add it to the map with weight of 1
-				// the new weight will later be written to the config file
-				weights.putIfAbsent(String.valueOf(eq.getItemId()), 1d);
-				for (final Enchantment ench : eq.getEnchantments()) {
-					weights.putIfAbsent(ench.getEnchantmentId(), 1d);
+	/**
+	 * Dumps the statistics of the mob weights per level, key = level, value = the count, mean, min, p10, median,
+	 * p90 and max, see {@link LevelAggregate#summarize(int, int)}
+	 *
+	 * @param file   the file name
+	 * @param levels the mob weights aggregated per level
+	 * @throws IOException if the levels could not be dumped
+	 */
+	static void dumpLevels(final String file, final LevelAggregate levels) throws IOException {
+		try (YamlStreamWriter out = new YamlStreamWriter(new File(Main.getOutDir(), file),
+				Main.createDumperOptions(), Collections.emptyMap())) {
+			for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+				if (levels.getCount(WEIGHT, lvl) > 0) {
+					out.write(String.valueOf(lvl), levels.summarize(WEIGHT, lvl));
 				}
 			}
-			dumpMap.put(m.getMobId(), m);
 		}
+	}
 
-		// write the new weights to the config
-		addToConfig(getConfig(), weights);
+	/**
+	 * Dumps the mobs sorted by level, key = mob ID, value = mob. The mob IDs are unique, see {@link MobDataset}.
+	 *
+	 * @param file the file name
+	 * @param mobs the mobs
+	 * @throws IOException if the mobs could not be dumped
+	 */
+	static void dumpMobs(final String file, final List<Mob> mobs) throws IOException {
+		final List<Mob> sorted = new ArrayList<>(mobs);
+		sorted.sort(Mob::compareTo);
+
+		// the equipment is shared by the mobs, it is written once and aliased afterwards
+		final List<MobItem> equipment = new ArrayList<>();
+		for (Mob m : sorted) {
+			equipment.addAll(m.getEquipment());
+		}
+		final Map<Object, String> anchors = YamlStreamWriter.anchors(equipment);
 
-		// dump the mobs to a file
-		Main.getYaml().dump(dumpMap, new FileWriter(new File(Main.getOutDir(),
-				"mobs-" + System.currentTimeMillis() + ".yml"), StandardCharsets.UTF_8));
+		try (YamlStreamWriter out = new YamlStreamWriter(new File(Main.getOutDir(), file),
+				Main.createDumperOptions(), anchors)) {
+			for (Mob m : sorted) {
+				out.write(m.getMobId(), m);
+			}
+		}
+	}
 
-		// create a chart out of the file
-		createChart("mobs.svg", dumpMap);
+	/**
+	 * Dumps the mobs sorted by level in the format
+	 *
+	 * @param file   the file name
+	 * @param mobs   the mobs
+	 * @param format the format
+	 * @throws IOException if the mobs could not be dumped
+	 */
+	static void dumpMobs(final String file, final List<Mob> mobs, final OutputFormat format) throws IOException {
+		final Events.Dump event = new Events.Dump();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.DUMP, event);
+		switch (format) {
+			case CSV:
+				dumpMobsCsv(file, mobs);
+				break;
+			case BINARY:
+				dumpMobsColumns(file, mobs);
+				break;
+			case YAML:
+			default:
+				dumpMobs(file, mobs);
+				break;
+		}
+		span.end(mobs.size(), 0);
+		event.file = file;
+		event.format = format.name();
+		event.entries = mobs.size();
+		event.commit();
 	}
 
 	/**
-	 * Dumps the weight map to a config file
+	 * Dumps the mobs sorted by level into a CSV file, one row per mob. The equipment IDs are joined in a single
+	 * column, separated by ';'.
+	 *
+	 * @param file the file name
+	 * @param mobs the mobs
+	 * @throws IOException if the mobs could not be dumped
+	 */
+	static void dumpMobsCsv(final String file, final List<Mob> mobs) throws IOException {
+		final List<Mob> sorted = new ArrayList<>(mobs);
+		sorted.sort(Mob::compareTo);
+
+		final StringBuilder sb = new StringBuilder();
+		try (ChannelOutput out = new ChannelOutput(new File(Main.getOutDir(), file))) {
+			out.putText("mob_id,mob_name,lvl,health,damage,weight,equipment\n");
+			for (Mob m : sorted) {
+				sb.setLength(0);
+				sb.append(OutputFormat.csvField(m.getMobId())).append(',')
+						.append(OutputFormat.csvField(m.getMobName())).append(',')
+						.append(m.getLvl()).append(',')
+						.append(m.getHealth()).append(',')
+						.append(m.getDamage()).append(',')
+						.append(m.getWeight()).append(',');
+
+				final StringJoiner equipment = new StringJoiner(";");
+				for (MobItem eq : m.getEquipment()) {
+					equipment.add(eq.getId());
+				}
+				sb.append(OutputFormat.csvField(equipment.toString())).append('\n');
+				out.putText(sb);
+			}
+		}
+	}
+
+	/**
+	 * Dumps the mobs sorted by level into a binary columnar file, see {@link ColumnFile}. The mob columns are
+	 * mob_id, mob_name, lvl, health, damage, weight, eq_offset (the first equipment of each mob, plus the end) and
+	 * eq_id. Every distinct equipment is stored once in the item_id, item_game_id, item_weight, item_total_weight,
+	 * ench_offset, ench_id, ench_level and ench_weight columns.
+	 *
+	 * @param file the file name
+	 * @param mobs the mobs
+	 * @throws IOException if the mobs could not be dumped
+	 */
+	static void dumpMobsColumns(final String file, final List<Mob> mobs) throws IOException {
+		final List<Mob> sorted = new ArrayList<>(mobs);
+		sorted.sort(Mob::compareTo);
+
+		final int size = sorted.size();
+		final String[] ids = new String[size];
+		final String[] names = new String[size];
+		final int[] lvl = new int[size];
+		final int[] health = new int[size];
+		final int[] damage = new int[size];
+		final double[] weight = new double[size];
+		final int[] eqOffsets = new int[size + 1];
+		final List<String> eqIds = new ArrayList<>();
+		final Map<String, MobItem> items = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			final Mob m = sorted.get(i);
+			ids[i] = m.getMobId();
+			names[i] = m.getMobName();
+			lvl[i] = m.getLvl();
+			health[i] = m.getHealth();
+			damage[i] = m.getDamage();
+			weight[i] = m.getWeight();
+			eqOffsets[i] = eqIds.size();
+			for (MobItem eq : m.getEquipment()) {
+				eqIds.add(eq.getId());
+				items.putIfAbsent(eq.getId(), eq);
+			}
+		}
+		eqOffsets[size] = eqIds.size();
+
+		final int itemCount = items.size();
+		final String[] itemIds = new String[itemCount];
+		final int[] gameIds = new int[itemCount];
+		final double[] itemWeights = new double[itemCount];
+		final double[] totalWeights = new double[itemCount];
+		final int[] enchOffsets = new int[itemCount + 1];
+		final List<Enchantment> enchantments = new ArrayList<>();
+		int i = 0;
+		for (MobItem item : items.values()) {
+			itemIds[i] = item.getId();
+			gameIds[i] = item.getItemId();
+			itemWeights[i] = item.getWeight();
+			totalWeights[i] = item.getTotalWeight();
+			enchOffsets[i] = enchantments.size();
+			enchantments.addAll(item.getEnchantments());
+			i++;
+		}
+		enchOffsets[itemCount] = enchantments.size();
+
+		final int enchCount = enchantments.size();
+		final String[] enchIds = new String[enchCount];
+		final int[] enchLevels = new int[enchCount];
+		final double[] enchWeights = new double[enchCount];
+		for (int e = 0; e < enchCount; e++) {
+			enchIds[e] = enchantments.get(e).getEnchantmentId();
+			enchLevels[e] = enchantments.get(e).getLevel();
+			enchWeights[e] = enchantments.get(e).getWeight();
+		}
+
+		final ColumnFile columns = new ColumnFile("mobs");
+		columns.addStrings("mob_id", ids, size);
+		columns.addStrings("mob_name", names, size);
+		columns.addInts("lvl", lvl, size);
+		columns.addInts("health", health, size);
+		columns.addInts("damage", damage, size);
+		columns.addDoubles("weight", weight, size);
+		columns.addInts("eq_offset", eqOffsets, size + 1);
+		columns.addStrings("eq_id", eqIds.toArray(new String[0]), eqIds.size());
+		columns.addStrings("item_id", itemIds, itemCount);
+		columns.addInts("item_game_id", gameIds, itemCount);
+		columns.addDoubles("item_weight", itemWeights, itemCount);
+		columns.addDoubles("item_total_weight", totalWeights, itemCount);
+		columns.addInts("ench_offset", enchOffsets, itemCount + 1);
+		columns.addStrings("ench_id", enchIds, enchCount);
+		columns.addInts("ench_level", enchLevels, enchCount);
+		columns.addDoubles("ench_weight", enchWeights, enchCount);
+		columns.write(new File(Main.getOutDir(), file));
+	}
+
+	/**
+	 * Indexes the mobs by level, by the IDs of their equipment and by weight, see {@link LevelIndex}
+	 *
+	 * @param mobs the mobs
+	 * @return the index, the indices are the indices in the list
+	 */
+	static LevelIndex<Mob> createIndex(final List<Mob> mobs) {
+		final LevelIndex.Builder builder = new LevelIndex.Builder(mobs.size());
+		final List<String> equipment = new ArrayList<>();
+		for (Mob m : mobs) {
+			equipment.clear();
+			for (MobItem eq : m.getEquipment()) {
+				equipment.add(eq.getId());
+			}
+			builder.add(m.getLvl(), m.getWeight(), equipment);
+		}
+		return builder.build(mobs::get);
+	}
+
+	/**
+	 * Aggregates the weights of the mobs per level, mobs above {@link #MAX_LEVEL} are left out
+	 *
+	 * @param mobs the mobs
+	 * @return the mob weights aggregated per level
+	 */
+	static LevelAggregate aggregate(final Collection<Mob> mobs) {
+		final LevelAggregate levels = new LevelAggregate(1);
+		for (Mob m : mobs) {
+			if (m.getLvl() > 0 && m.getLvl() <= MAX_LEVEL) {
+				levels.add(WEIGHT, m.getLvl(), m.getWeight());
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * Adds the new weights to the config file, see {@link ConfigWriter}
 	 *
 	 * @param f   the config file
 	 * @param map the weight map
 	 * @throws IOException if the file is invalid
 	 */
-	private static void addToConfig(File f, Map<String, Double> map) throws IOException {
-		try (FileWriter fw = new FileWriter(f, StandardCharsets.UTF_8)) {
-			Main.getYaml().dump(map, fw);
-		}
+	static void addToConfig(File f, Map<String, Object> map) throws IOException {
+		ConfigWriter.addKeys(f, map);
 	}
 
 	/**
-	 * Parses items and associates the weights with them based on the given map
+	 * Adds the item IDs and enchantment IDs of the equipment the mobs use to the dictionary, if they do not exist
+	 * yet they are added with the default weight and later written to the config file. The keys are added in the
+	 * order of the mobs sorted by level.
 	 *
-	 * @param weights the weight map
-	 * @return a map of key=equipmentId, value=equipment
-	 * @throws FileNotFoundException if a file could not be read
+	 * @param mobs    the mobs
+	 * @param weights the weight dictionary
 	 */
-	private static Map<String, MobItem> parseItemFiles(
-			final Map<String, Double> weights) throws FileNotFoundException {
-		final Map<String, MobItem> equipment = new HashMap<>();
-
-		// get all files in the directory
-		File[] itemFiles = getItemsFolder().listFiles(x -> x.getName().endsWith(".yml"));
-		if (itemFiles == null) {
-			return equipment;
+	static void addWeights(final List<Mob> mobs, final WeightDictionary weights) {
+		final List<Mob> sorted = new ArrayList<>(mobs);
+		sorted.sort(Mob::compareTo);
+		for (Mob m : sorted) {
+			for (final MobItem eq : m.getEquipment()) {
+				weights.intern(String.valueOf(eq.getItemId()));
+				for (final Enchantment ench : eq.getEnchantments()) {
+					weights.intern(ench.getEnchantmentId());
+				}
+			}
 		}
+	}
 
-		// read all files in that directory
-		for (File itemFile : itemFiles) {
-			// key = itemId, value = map of key-value pairs (metadata)
-			final Map<String, ?> map = Main.readFile(itemFile);
-			for (Map.Entry<String, ?> entry : map.entrySet()) {
-				Map<String, ?> subMap = (Map<String, ?>) entry.getValue();
-
-				// item id
-				final Object id = subMap.get("Id");
-				if (!(id instanceof Integer)) {
-					continue;
-				}
-				final Object enchantments = subMap.get("Enchantments");
-				final Collection<Enchantment> enchs = new ArrayList<>();
-				if (enchantments instanceof List) {
-					for (String s : (List<String>) enchantments) {
-						Matcher m = Enchantment.ENCHANTMENT_PATTERN.matcher(s);
-						if (!m.find()) {
-							L.debug("Could not find an enchantment pattern in " + s);
-							continue;
-						}
-						enchs.add(new Enchantment(m.group(1), Integer.parseInt(m.group(2)),
-								weights.getOrDefault(m.group(1), 0d)));
+	/**
+	 * Parses items and associates the weights with them based on the given dictionary.
+	 * Weights that are not in the config are 0 for this run, the keys are not added to the dictionary here, only
+	 * the equipment the mobs use is, see {@link #addWeights(List, WeightDictionary)}.
+	 *
+	 * @param map     the item records, key = itemId, value = map of key-value pairs (metadata)
+	 * @param weights the weight dictionary
+	 * @return the equipment by index, the enchantments of the same ID and level are a single shared instance
+	 */
+	static EquipmentIndex parseItemFiles(final Map<String, Map<String, Object>> map,
+	                                     final WeightDictionary weights) {
+		final EquipmentIndex equipment = new EquipmentIndex();
+		final LineScanner scanner = new LineScanner();
+		final Events.LoreParse event = new Events.LoreParse();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.LORE, event);
+		int lines = 0;
+		int matches = 0;
+
+		for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+			Map<String, ?> subMap = entry.getValue();
+
+			// item id
+			final Object id = subMap.get("Id");
+			if (!(id instanceof Integer)) {
+				continue;
+			}
+			final Object enchantments = subMap.get("Enchantments");
+			final Collection<Enchantment> enchs = new ArrayList<>();
+			if (enchantments instanceof List) {
+				for (String s : (List<String>) enchantments) {
+					lines++;
+					if (!scanner.scanEnchantment(s)) {
+						L.debug("Could not find an enchantment pattern in " + s);
+						continue;
 					}
+					matches++;
+					final String enchId = scanner.getName();
+					enchs.add(equipment.enchantment(enchId, scanner.getMin(), weights.getWeight(enchId, 0d)));
 				}
-
-				equipment.put(entry.getKey(), new MobItem(entry.getKey(), (int) id,
-						weights.getOrDefault(String.valueOf(id), 0d),
-						enchs));
 			}
 
+			equipment.add(new MobItem(entry.getKey(), (int) id,
+					weights.getWeight(String.valueOf(id), 0d),
+					enchs));
 		}
+		span.end(lines, 0);
+		event.source = "mob items";
+		event.records = map.size();
+		event.lines = lines;
+		event.matches = matches;
+		event.misses = lines - matches;
+		event.commit();
 		return equipment;
 	}
 
-	private static File getItemsFolder() {
+	/**
+	 * Loads the records of all files in the directory, only the given keys are kept.
+	 * Files that did not change since the last run are read from the parse cache.
+	 *
+	 * @param dir       the directory
+	 * @param cacheName the parse cache file name
+	 * @param keys      the keys to keep
+	 * @return the records of each file, key = ID, value = the kept key-value pairs
+	 * @throws IOException if a file could not be read
+	 */
+	static Map<File, Map<String, Map<String, Object>>> loadAll(final File dir, final String cacheName,
+	                                                          final Set<String> keys) throws IOException {
+		final ParseCache cache = ParseCache.open(new File(Main.getCacheDir(), cacheName),
+				String.join(",", new TreeSet<>(keys)));
+		final Map<File, Map<String, Map<String, Object>>> loaded = FileLoader.loadAll(dir,
+				cache.wrap(reader -> StreamingYamlReader.read(reader, keys)));
+		cache.save();
+		return loaded;
+	}
+
+	public static File getItemsFolder() {
 		return Main.getDirectory(getMobsFolder(), ITEMS_PATH);
 	}
 
 	/**
 	 * Parses the mobs and assigns them equipment
 	 *
-	 * @param equipment the equipment
+	 * @param map       the mob records, key = mobId, value = map of key-value pairs (metadata)
+	 * @param equipment the equipment, the lines are resolved to the indices of the items
 	 * @return the list of mobs
-	 * @throws FileNotFoundException if
 	 */
-	private static List<Mob> parseMobFiles(Map<String, MobItem> equipment) throws FileNotFoundException {
+	static List<Mob> parseMobFiles(final Map<String, Map<String, Object>> map,
+	                               final EquipmentIndex equipment) {
 		List<Mob> mobs = new ArrayList<>();
-		File[] mobFiles = getActualMobsFolder().listFiles(x -> x.getName().endsWith(".yml"));
-		if (mobFiles == null) {
-			return mobs;
-		}
-		for (File mobFile : mobFiles) {
-			Map<String, ?> map = Main.readFile(mobFile);
-			for (Map.Entry<String, ?> entry : map.entrySet()) {
-				final Map<String, ?> subMap = (Map<String, ?>) entry.getValue();
-				if (!subMap.containsKey("Health") || !subMap.containsKey("Damage")) {
-					continue;
-				}
+		int[] eq = new int[16];
+		final Events.EquipmentResolution event = new Events.EquipmentResolution();
+		final RunReport.Span span = RunReport.start(RunReport.Stage.EQUIPMENT, event);
+		int references = 0;
+		int resolved = 0;
+		for (Map.Entry<String, Map<String, Object>> entry : map.entrySet()) {
+			final Map<String, ?> subMap = entry.getValue();
+			if (!subMap.containsKey("Health") || !subMap.containsKey("Damage")) {
+				continue;
+			}
 
-				// check if the mob even has equipment
-				final Collection<MobItem> eq = new ArrayList<>();
-				if (subMap.get("Equipment") instanceof Collection) {
-					for (String s : (Collection<String>) subMap.get("Equipment")) {
-						final Matcher m = MobItem.EQUIPMENT_PATTERN.matcher(s);
-						if (!m.find()) {
-							L.debug(String.format("Could not find an item for %s (invalid pattern for mob id %s)", s,
-									entry.getKey()));
-							continue;
-						}
-
-						final String eqId = m.group(1);
-						if (!equipment.containsKey(eqId)) {
-							L.debug(String.format("Could not find an item for equipment ID %s for mob %s", eqId, entry.getKey()));
-							continue;
-						}
-
-						// the equipment is valid and exists, add it
-						eq.add(equipment.get(eqId));
+			// check if the mob even has equipment
+			int slots = 0;
+			if (subMap.get("Equipment") instanceof Collection) {
+				for (String s : (Collection<String>) subMap.get("Equipment")) {
+					references++;
+					final int item = equipment.resolve(s);
+					if (item == EquipmentIndex.INVALID) {
+						L.debug(String.format("Could not find an item for %s (invalid pattern for mob id %s)", s,
+								entry.getKey()));
+						continue;
 					}
-				}
 
-				final int health = (int) subMap.get("Health");
-				final int damage = (int) subMap.get("Damage");
-				final String display;
-				if (subMap.containsKey("Display")) {
-					display = (String) subMap.get("Display");
-				} else {
-					display = "No mob name";
+					if (item == EquipmentIndex.MISSING) {
+						L.debug(String.format("Could not find an item for equipment ID %s for mob %s",
+								LineScanner.scanEquipmentId(s), entry.getKey()));
+						continue;
+					}
+
+					// the equipment is valid and exists, add it
+					if (slots == eq.length) {
+						eq = Arrays.copyOf(eq, slots * 2);
+					}
+					eq[slots++] = item;
+					resolved++;
 				}
+			}
 
-				mobs.add(new Mob(entry.getKey(), display, health, damage, eq));
+			final int health = (int) subMap.get("Health");
+			final int damage = (int) subMap.get("Damage");
+			final String display;
+			if (subMap.containsKey("Display")) {
+				display = (String) subMap.get("Display");
+			} else {
+				display = "No mob name";
 			}
+
+			mobs.add(new Mob(entry.getKey(), display, health, damage, equipment, Arrays.copyOf(eq, slots)));
 		}
+		span.end(mobs.size(), 0);
+		event.mobs = mobs.size();
+		event.references = references;
+		event.resolved = resolved;
+		event.misses = references - resolved;
+		event.commit();
 		return mobs;
 	}
 
-	private static File getActualMobsFolder() {
+	public static File getActualMobsFolder() {
 		return Main.getDirectory(getMobsFolder(), ACTUAL_MOBS_PATH);
 	}
 
@@ -206,47 +486,57 @@ public class MobStatistics {
 	/**
 	 * Creates a line chart
 	 *
-	 * @param fileName   the file name
-	 * @param rankedMobs the data
+	 * @param fileName the file name
+	 * @param levels   the mob weights aggregated per level
 	 * @throws IOException if the chart could not be created
 	 */
-	private static void createChart(final String fileName, final Map<String, Mob> rankedMobs) throws IOException {
-		if (rankedMobs.isEmpty()) {
+	static void createChart(final String fileName, final LevelAggregate levels) throws IOException {
+		final JFreeChart chart = createChart(levels);
+		if (chart != null) {
+			ChartWriter.write(fileName, chart);
+		}
+	}
+
+	/**
+	 * Creates a line chart
+	 *
+	 * @param levels the mob weights aggregated per level
+	 * @return the chart or {@code null} if there is nothing to chart
+	 */
+	public static JFreeChart createChart(final LevelAggregate levels) {
+		if (levels.isEmpty()) {
 			L.info("No mobs loaded, cannot create mob charts");
-			return;
+			return null;
 		}
 
 		final XYSeriesCollection ds = new XYSeriesCollection();
-		final Map<Integer, Number> vals = new HashMap<>();
-		final Map<Integer, Integer> mobsPerLvl = new HashMap<>();
 		final XYSeries series = new XYSeries("mobs");
 
-		// loop through the mobs, add their values and the amount of mobs
-		for (final Map.Entry<String, Mob> e : rankedMobs.entrySet()) {
-			final Mob mob = e.getValue();
-			if (mob.getLvl() <= 0 || mob.getLvl() > 60) {
-				continue;
+		// the mean of the mob weights per level
+		for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+			if (levels.getCount(WEIGHT, lvl) > 0) {
+				series.add(lvl, levels.getMean(WEIGHT, lvl));
 			}
-			vals.put(mob.getLvl(), vals.getOrDefault(mob.getLvl(), 0d).doubleValue() + mob.getWeight());
-			mobsPerLvl.put(mob.getLvl(), mobsPerLvl.getOrDefault(mob.getLvl(), 0) + 1);
-		}
-
-		// loop through the values, and divide each value by the amount,
-		// making a mean, and add the value to a series
-		for (final Map.Entry<Integer, Number> entry : vals.entrySet()) {
-			final int amount = mobsPerLvl.getOrDefault(entry.getKey(), Integer.MAX_VALUE);
-			final Number curVal = (entry.getValue().doubleValue() / amount);
-			series.add(entry.getKey(), curVal);
 		}
 
 		ds.addSeries(series);
-		final JFreeChart chart = ChartFactory.createXYLineChart("Mob stats / level chart", "Mob level",
-				"Mob stats", ds);
-		Main.dumpChart(fileName, chart);
 
+		// the spread of the mob weights, estimated by the sketches
+		final double[] quantiles = {0.1, 0.5, 0.9};
+		final String[] names = {"p10", "median", "p90"};
+		for (int q = 0; q < quantiles.length; q++) {
+			final XYSeries quantile = new XYSeries(names[q]);
+			for (int lvl = 0; lvl < levels.getLevels(); lvl++) {
+				if (levels.getCount(WEIGHT, lvl) > 0) {
+					quantile.add(lvl, levels.getQuantile(WEIGHT, lvl, quantiles[q]));
+				}
+			}
+			ds.addSeries(quantile);
+		}
+		return ChartFactory.createXYLineChart("Mob stats / level chart", "Mob level", "Mob stats", ds);
 	}
 
-	private static File getConfig() throws IOException {
+	static File getConfig() throws IOException {
 		final File f = new File(Main.getCwd(), CONFIG_FILE);
 		if (!f.exists()) {
 			f.createNewFile();
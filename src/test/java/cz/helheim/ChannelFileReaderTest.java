@@ -0,0 +1,82 @@
+package cz.helheim;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ChannelFileReader} decodes the same text as SnakeYAML's {@link UnicodeReader}
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class ChannelFileReaderTest {
+	private static final String TEXT = "id: 'Šavle'\nlore:\n- '&a+5 Síla 😀'\n";
+
+	@Test
+	void decodesLikeUnicodeReader() throws IOException {
+		final byte[] utf8 = TEXT.getBytes(StandardCharsets.UTF_8);
+		final byte[][] encodings = {
+				utf8,
+				concat(new byte[]{(byte) 0xef, (byte) 0xbb, (byte) 0xbf}, utf8),
+				concat(new byte[]{(byte) 0xfe, (byte) 0xff}, TEXT.getBytes(StandardCharsets.UTF_16BE)),
+				concat(new byte[]{(byte) 0xff, (byte) 0xfe}, TEXT.getBytes(StandardCharsets.UTF_16LE)),
+				new byte[0]
+		};
+		for (byte[] bytes : encodings) {
+			final String expected = drain(new UnicodeReader(new ByteArrayInputStream(bytes)), 1024);
+			assertEquals(expected, drain(ChannelFileReader.open(ByteBuffer.wrap(bytes)), 1024));
+			// a surrogate pair split over two reads
+			assertEquals(expected, drain(ChannelFileReader.open(ByteBuffer.wrap(bytes)), 1));
+		}
+	}
+
+	@Test
+	void readsTheWholeFile(@TempDir final File dir) throws IOException {
+		final File f = new File(dir, "items.yml");
+		final String text = TEXT.repeat(10_000);
+		Files.write(f.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		try (Reader reader = ChannelFileReader.open(f)) {
+			assertEquals(text, drain(reader, 4096));
+		}
+		// nothing holds the file, it can be replaced and deleted right away
+		Files.write(f.toPath(), new byte[0]);
+		assertTrue(f.delete());
+	}
+
+	@Test
+	void reportsMalformedInput() {
+		final byte[] bytes = {'a', (byte) 0xc5, 'b'};
+		assertThrows(MalformedInputException.class, () -> drain(ChannelFileReader.open(ByteBuffer.wrap(bytes)), 16));
+	}
+
+	private static String drain(final Reader reader, final int chunk) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		final char[] buf = new char[chunk];
+		for (int n; (n = reader.read(buf, 0, chunk)) != -1; ) {
+			sb.append(buf, 0, n);
+		}
+		return sb.toString();
+	}
+
+	private static byte[] concat(final byte[] a, final byte[] b) {
+		final byte[] bytes = new byte[a.length + b.length];
+		System.arraycopy(a, 0, bytes, 0, a.length);
+		System.arraycopy(b, 0, bytes, a.length, b.length);
+		return bytes;
+	}
+}
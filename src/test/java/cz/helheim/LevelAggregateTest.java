@@ -0,0 +1,107 @@
+package cz.helheim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that updating a {@link LevelAggregate} by parts gives the same result as aggregating from scratch
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class LevelAggregateTest {
+	private static final int KINDS = 2;
+	private static final int LEVELS = 12;
+	private static final double[] QUANTILES = {0, 0.1, 0.25, 0.5, 0.75, 0.9, 1};
+
+	@Test
+	void subtractAndRefreshLikeRebuilding() {
+		final Random random = new Random(7);
+		final List<LevelAggregate> parts = new ArrayList<>();
+		for (int p = 0; p < 5; p++) {
+			// from a few values to more than a sketch keeps exactly
+			parts.add(part(random, p == 0 ? 5 : 2_000 * p));
+		}
+		// the extremes of some levels are in the part that is removed
+		parts.get(2).add(0, 3, -1e6);
+		parts.get(2).add(1, 3, 1e6);
+		parts.get(2).add(0, LEVELS + 3, 5);
+		parts.get(2).add(0, -1, 5);
+
+		final LevelAggregate total = merge(KINDS, parts);
+		final LevelAggregate removed = parts.remove(2);
+		total.subtract(removed);
+		total.refresh(parts);
+		assertSame(merge(KINDS, parts), total);
+
+		// a changed part, as when a file changes
+		final LevelAggregate previous = parts.remove(1);
+		final LevelAggregate changed = part(random, 3_000);
+		total.subtract(previous);
+		total.merge(changed);
+		parts.add(changed);
+		total.refresh(parts);
+		assertSame(merge(KINDS, parts), total);
+	}
+
+	@Test
+	void subtractsTheLastValuesOfALevel() {
+		final LevelAggregate a = new LevelAggregate(1);
+		a.add(0, 1, 10);
+		final LevelAggregate b = new LevelAggregate(1);
+		b.add(0, 1, 20);
+		b.add(0, 2, 30);
+
+		final LevelAggregate total = merge(1, List.of(a, b));
+		total.subtract(b);
+		total.refresh(List.of(a));
+		assertEquals(0, total.getCount(0, 2));
+		assertTrue(Double.isNaN(total.getMin(0, 2)));
+		assertTrue(Double.isNaN(total.getQuantile(0, 2, 0.5)));
+		assertEquals(10d, total.getMax(0, 1));
+		assertEquals(10d, total.getQuantile(0, 1, 0.5));
+		assertTrue(total.summarize(0, 2).isEmpty());
+	}
+
+	private static LevelAggregate part(final Random random, final int values) {
+		final LevelAggregate part = new LevelAggregate(KINDS);
+		for (int i = 0; i < values; i++) {
+			final int lvl = random.nextInt(LEVELS);
+			part.add(0, lvl, random.nextGaussian() * 100);
+			part.add(1, lvl, random.nextInt(1000));
+		}
+		return part;
+	}
+
+	private static LevelAggregate merge(final int kinds, final List<LevelAggregate> parts) {
+		final LevelAggregate total = new LevelAggregate(kinds);
+		for (LevelAggregate part : parts) {
+			total.merge(part);
+		}
+		return total;
+	}
+
+	private static void assertSame(final LevelAggregate expected, final LevelAggregate actual) {
+		assertEquals(expected.getIgnored(), actual.getIgnored());
+		for (int lvl = 0; lvl < Math.max(expected.getLevels(), actual.getLevels()); lvl++) {
+			for (int kind = 0; kind < KINDS; kind++) {
+				final String at = "kind " + kind + " level " + lvl;
+				assertEquals(expected.getCount(kind, lvl), actual.getCount(kind, lvl), at);
+				// the sums differ by the rounding of the subtraction
+				assertEquals(expected.getSum(kind, lvl), actual.getSum(kind, lvl), 1e-6, at);
+				assertEquals(expected.getMin(kind, lvl), actual.getMin(kind, lvl), at);
+				assertEquals(expected.getMax(kind, lvl), actual.getMax(kind, lvl), at);
+				for (double q : QUANTILES) {
+					assertEquals(expected.getQuantile(kind, lvl, q), actual.getQuantile(kind, lvl, q), at + " q " + q);
+				}
+			}
+		}
+	}
+}
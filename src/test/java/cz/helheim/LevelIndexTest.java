@@ -0,0 +1,144 @@
+package cz.helheim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks every query shape of {@link LevelIndex} against a brute-force filter and sort of the same values
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class LevelIndexTest {
+	private static final int[][] LEVEL_RANGES = {
+			null, {-3, -1}, {-100, 100}, {0, 0}, {5, 5}, {3, 12}, {20, 10}, {31, 40},
+			{Integer.MIN_VALUE, 0}, {10, Integer.MAX_VALUE}};
+	private static final List<List<String>> KEYS = List.of(
+			List.of(), List.of("a"), List.of("e"), List.of("a", "b"), List.of("b", "a", "c"), List.of("a", "a"),
+			List.of("unknown"), List.of("a", "unknown"));
+	private static final int[] LIMITS = {Integer.MAX_VALUE, 0, 1, 7, 1000};
+
+	@Test
+	void queriesLikeBruteForce() {
+		for (int n : new int[]{0, 1, 40, 1000}) {
+			final List<Value> values = values(new Random(n), n);
+			final LevelIndex<Value> index = build(values);
+			assertEquals(n, index.size());
+			for (int[] range : LEVEL_RANGES) {
+				for (List<String> keys : KEYS) {
+					for (LevelIndex.Order order : LevelIndex.Order.values()) {
+						for (int limit : LIMITS) {
+							final LevelIndex<Value>.Query query = index.query().orderBy(order).limit(limit);
+							if (range != null) {
+								query.levels(range[0], range[1]);
+							}
+							keys.forEach(query::with);
+
+							final int[] expected = bruteForce(values, range, keys, order, limit);
+							final String shape = String.format("n=%d levels=%s keys=%s order=%s limit=%d", n,
+									Arrays.toString(range), keys, order, limit);
+							assertArrayEquals(expected, query.indices(), shape);
+							assertEquals(expected.length, query.count(), shape);
+							final List<Value> list = query.list();
+							assertEquals(expected.length, list.size(), shape);
+							for (int i = 0; i < expected.length; i++) {
+								assertEquals(expected[i], list.get(i).index, shape);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void countsTheKeys() {
+		final List<Value> values = values(new Random(3), 200);
+		final LevelIndex<Value> index = build(values);
+		for (String key : List.of("a", "b", "c", "d", "e", "unknown")) {
+			final long expected = values.stream().filter(v -> v.keys.contains(key)).count();
+			assertEquals(expected, index.count(key), key);
+		}
+		assertEquals(5, index.getKeys().size());
+		assertEquals(values.get(17), index.get(17));
+		assertThrows(IllegalArgumentException.class, () -> index.query().limit(-1));
+	}
+
+	/**
+	 * The values are in the order of the level, ties by the index. The score order is the highest score first,
+	 * ties in the level order, and ascending is its exact reverse.
+	 */
+	private static int[] bruteForce(final List<Value> values, final int[] range, final List<String> keys,
+	                                 final LevelIndex.Order order, final int limit) {
+		final List<Value> matches = new ArrayList<>();
+		for (Value v : values) {
+			if (range != null && (v.lvl < range[0] || v.lvl > range[1])) {
+				continue;
+			}
+			if (v.keys.containsAll(keys)) {
+				matches.add(v);
+			}
+		}
+		final Comparator<Value> byLevel = Comparator.<Value>comparingInt(v -> v.lvl).thenComparingInt(v -> v.index);
+		final Comparator<Value> byScore = Comparator.<Value>comparingDouble(v -> -v.score).thenComparing(byLevel);
+		switch (order) {
+			case LEVEL:
+				matches.sort(byLevel);
+				break;
+			case SCORE:
+				matches.sort(byScore);
+				break;
+			case SCORE_ASCENDING:
+				matches.sort(byScore.reversed());
+				break;
+		}
+		return matches.stream().limit(limit).mapToInt(v -> v.index).toArray();
+	}
+
+	private static LevelIndex<Value> build(final List<Value> values) {
+		final LevelIndex.Builder builder = new LevelIndex.Builder(1);
+		for (Value v : values) {
+			builder.add(v.lvl, v.score, v.keys);
+		}
+		return builder.build(values::get);
+	}
+
+	/**
+	 * Levels from -3 to 30, scores with many ties and keys that may repeat within a value
+	 */
+	private static List<Value> values(final Random random, final int n) {
+		final List<Value> values = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			final List<String> keys = new ArrayList<>();
+			for (int k = random.nextInt(5); k > 0; k--) {
+				keys.add(String.valueOf((char) ('a' + random.nextInt(5))));
+			}
+			values.add(new Value(i, random.nextInt(34) - 3, random.nextInt(20) / 2d, keys));
+		}
+		return values;
+	}
+
+	private static final class Value {
+		private final int index;
+		private final int lvl;
+		private final double score;
+		private final List<String> keys;
+
+		private Value(final int index, final int lvl, final double score, final List<String> keys) {
+			this.index = index;
+			this.lvl = lvl;
+			this.score = score;
+			this.keys = keys;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package cz.helheim;
+
+import cz.helheim.items.Attribute;
+import cz.helheim.mobs.Enchantment;
+import cz.helheim.mobs.Mob;
+import cz.helheim.mobs.MobItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link LineScanner} matches exactly what the original patterns matched, the expected values are
+ * computed the way the parsers used the patterns before the scanner replaced them
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class LineScannerTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			// item attributes
+			"&a+35% Regenerace many", "&a+36-54 Vitalita", "&a+19-36 Obrana", "&a+10%-20% Obrana",
+			"&a+10-20% Obrana", "&a+10%-20 Obrana", "&a+5 Síla", "&c+7 Kritický útok", "x&a+5 Síla", "&&a+5 Síla",
+			"&a+5-x Síla", "&a+5- Síla", "&a+ 5 Síla", "+10 Obrana", "&a+5Síla", "&a+5 ", "&a+5-6",
+			"&a+5 Síla\n&b+6 Obrana", "&a\n+5 Síla", "&a+5-99999999999 Síla",
+			// class attributes
+			"&6Přesnost: 8", "&6Novinka: 41-46%", "&7Potřebný Lvl: 10", "&6Kritický útok: 12%", "&6Síla: 5-",
+			"&6Síla: 5-x", "&6a: b: 7", "&6a: 7 b: x", "&6: 7", "&6Síla:7", "&6Síla: x", "Síla: 7",
+			"&6Síla: 5%-6%", "&6Síla: 5\n&6Víra: 6", "&6Síla: 5-99999999999",
+			// neither
+			"", "&8junk line", "&", "&a", "lore without colours"
+	})
+	void scansAttributesLikeThePatterns(final String line) {
+		final LineScanner scanner = new LineScanner();
+		final Object[] expected = matchAttribute(line);
+		if (expected == null) {
+			assertFalse(scanner.scanAttribute(line), line);
+			return;
+		}
+		assertTrue(scanner.scanAttribute(line), line);
+		assertEquals(expected[0], scanner.getName(), line);
+		assertEquals(expected[1], scanner.getMin(), line);
+		assertEquals(expected[2], scanner.getMax(), line);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"DAMAGE_ALL:5", "PROTECTION_ENVIRONMENTAL:10", "a:b:3", ":5", "NOLEVEL", "X:", "X:abc",
+			"X:5a", "A:5\nB:6", "A\nB:6", "X: 5", "Ochrana:0"})
+	void scansEnchantmentsLikeThePattern(final String line) {
+		final LineScanner scanner = new LineScanner();
+		final Matcher m = Enchantment.ENCHANTMENT_PATTERN.matcher(line);
+		if (!m.find()) {
+			assertFalse(scanner.scanEnchantment(line), line);
+			return;
+		}
+		assertTrue(scanner.scanEnchantment(line), line);
+		assertEquals(m.group(1), scanner.getName(), line);
+		assertEquals(Integer.parseInt(m.group(2)), scanner.getMin(), line);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"eq1:0", "sword:2", ":3", "a:b:4", "noslot", "x:", "x:y", "a:1\nb:2", "\na:1",
+			"a b:12"})
+	void scansEquipmentLikeThePattern(final String line) {
+		final Matcher m = MobItem.EQUIPMENT_PATTERN.matcher(line);
+		assertEquals(m.find() ? m.group(1) : null, LineScanner.scanEquipmentId(line), line);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"&8[&4Lv. 25&8]&c Efrít", "&8[&4Lv. 3&8]   &c  Name", "&8[&4Lv. 3&8]&c", "No mob name",
+			"[&4Lv. 25&8]&c X", "xx&8[&4Lv. 7&8]&cY", "&8[&4Lv. &8]&c X", "&8[&4Lv. 5&8]  X", "&8[&4Lv.5&8]&c X",
+			"&8[x&8[&4Lv. 9&8]&c X", "&8[&4Lv. 1x&8]&c X &8[&4Lv. 2&8]&c Y", "&8[\n&4Lv. 5&8]&c X", ""})
+	void scansMobLevelsLikeThePattern(final String name) {
+		final Matcher m = Mob.NAME_PATTERN.matcher(name);
+		assertEquals(m.find() ? Integer.parseInt(m.group(1)) : 0, LineScanner.scanLevel(name), name);
+	}
+
+	/**
+	 * The patterns threw a {@link NumberFormatException} for a number that does not fit into an int, the scanner
+	 * does not match instead
+	 */
+	@Test
+	void overflowIsNotAMatch() {
+		final LineScanner scanner = new LineScanner();
+
+		final String attribute = "&a+99999999999 Síla";
+		assertThrows(NumberFormatException.class, () -> matchAttribute(attribute));
+		assertFalse(scanner.scanAttribute(attribute));
+
+		final String classAttribute = "&6Síla: 99999999999";
+		assertThrows(NumberFormatException.class, () -> matchAttribute(classAttribute));
+		assertFalse(scanner.scanAttribute(classAttribute));
+
+		final String enchantment = "DAMAGE_ALL:99999999999";
+		final Matcher m = Enchantment.ENCHANTMENT_PATTERN.matcher(enchantment);
+		assertTrue(m.find());
+		assertThrows(NumberFormatException.class, () -> Integer.parseInt(m.group(2)));
+		assertFalse(scanner.scanEnchantment(enchantment));
+
+		assertEquals(0, LineScanner.scanLevel("&8[&4Lv. 99999999999&8]&c X"));
+		assertEquals(Integer.MAX_VALUE, LineScanner.scanLevel("&8[&4Lv. 2147483647&8]&c X"));
+	}
+
+	@Test
+	void keepsTheLastMatch() {
+		final LineScanner scanner = new LineScanner();
+		assertTrue(scanner.scanAttribute("&a+1-2 Obrana"));
+		assertFalse(scanner.scanAttribute("&8junk line"));
+		assertEquals("Obrana", scanner.getName());
+		assertEquals(1, scanner.getMin());
+		assertEquals(2, scanner.getMax());
+	}
+
+	/**
+	 * The attribute parsing of the item lore before the scanner, the item pattern first, then the class pattern,
+	 * and the max falls back to the min if it is missing or does not fit into an int
+	 *
+	 * @return {name, min, max} or {@code null} if neither pattern matches
+	 */
+	private static Object[] matchAttribute(final String line) {
+		final Matcher item = Attribute.ATTRIBUTE_PATTERN.matcher(line);
+		final Matcher cls = Attribute.CLASS_PATTERN.matcher(line);
+		if (item.find()) {
+			final int min = Integer.parseInt(item.group(1));
+			return new Object[]{item.group(4), min, parseMax(item.group(3), min)};
+		}
+		if (cls.find()) {
+			final int min = Integer.parseInt(cls.group(2));
+			return new Object[]{cls.group(1), min, parseMax(cls.group(4), min)};
+		}
+		return null;
+	}
+
+	private static int parseMax(final String max, final int min) {
+		try {
+			return Integer.parseInt(max);
+		} catch (NumberFormatException e) {
+			return min;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package cz.helheim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the quantiles of {@link QuantileSketch} against the exact quantiles of the same values
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class QuantileSketchTest {
+	private static final int K = QuantileSketch.DEFAULT_K;
+	// the rank error documented by the sketch
+	private static final double EPSILON = 1.7 / K;
+
+	@Test
+	void isExactUpToK() {
+		final Random random = new Random(1);
+		for (int n : new int[]{1, 2, 3, 17, K / 2, K}) {
+			final double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				// with duplicates
+				values[i] = random.nextInt(n / 2 + 1) - n / 4d;
+			}
+			final QuantileSketch sketch = new QuantileSketch(K);
+			for (double v : values) {
+				sketch.add(v);
+			}
+
+			final double[] sorted = values.clone();
+			Arrays.sort(sorted);
+			assertEquals(n, sketch.getCount());
+			assertEquals(n, sketch.getRetained());
+			for (int i = 0; i <= 100; i++) {
+				final double q = i / 100d;
+				assertEquals(exact(sorted, q), sketch.getQuantile(q), "n=" + n + " q=" + q);
+			}
+		}
+	}
+
+	@Test
+	void boundsTheRankErrorOfALargeStream() {
+		final int n = 200_000;
+		for (double[] values : new double[][]{shuffled(n, new Random(2)), range(n)}) {
+			final QuantileSketch sketch = new QuantileSketch(K);
+			for (double v : values) {
+				sketch.add(v);
+			}
+			assertEquals(n, sketch.getCount());
+			assertTrue(sketch.getRetained() < 4 * K, "retained " + sketch.getRetained());
+			assertEquals(0d, sketch.getQuantile(0));
+			assertEquals(n - 1d, sketch.getQuantile(1));
+			assertRankError(sketch, n, EPSILON);
+		}
+	}
+
+	@Test
+	void mergesLikeTheConcatenatedStream() {
+		final int n = 100_000;
+		final double[] values = shuffled(n, new Random(3));
+		final QuantileSketch whole = new QuantileSketch(K);
+		for (double v : values) {
+			whole.add(v);
+		}
+
+		// parts of very different sizes, as the level aggregates of the files are
+		final int[] ends = {10, 150, 30_000, 30_100, n};
+		final QuantileSketch merged = new QuantileSketch(K);
+		int start = 0;
+		for (int end : ends) {
+			final QuantileSketch part = new QuantileSketch(K);
+			for (int i = start; i < end; i++) {
+				part.add(values[i]);
+			}
+			merged.merge(part);
+			assertEquals(end - start, part.getCount(), "the part is not changed");
+			start = end;
+		}
+		merged.merge(new QuantileSketch(K));
+
+		assertEquals(whole.getCount(), merged.getCount());
+		assertEquals(whole.getQuantile(0), merged.getQuantile(0));
+		assertEquals(whole.getQuantile(1), merged.getQuantile(1));
+		assertTrue(merged.getRetained() < 4 * K, "retained " + merged.getRetained());
+		assertRankError(merged, n, EPSILON);
+		for (int i = 1; i < 100; i++) {
+			final double q = i / 100d;
+			// the values are 0..n-1, a value is its rank - 1
+			assertEquals(whole.getQuantile(q), merged.getQuantile(q), 2 * EPSILON * n, "q=" + q);
+		}
+	}
+
+	@Test
+	void mergesExactlyUpToK() {
+		final QuantileSketch whole = new QuantileSketch(K);
+		final QuantileSketch merged = new QuantileSketch(K);
+		final Random random = new Random(4);
+		for (int p = 0; p < 4; p++) {
+			final QuantileSketch part = new QuantileSketch(K);
+			for (int i = 0; i < K / 4; i++) {
+				final double v = random.nextGaussian();
+				part.add(v);
+				whole.add(v);
+			}
+			merged.merge(part);
+		}
+		for (int i = 0; i <= 100; i++) {
+			assertEquals(whole.getQuantile(i / 100d), merged.getQuantile(i / 100d));
+		}
+	}
+
+	@Test
+	void isDeterministic() {
+		final double[] values = shuffled(50_000, new Random(5));
+		final QuantileSketch a = new QuantileSketch(K);
+		final QuantileSketch b = new QuantileSketch(K);
+		for (double v : values) {
+			a.add(v);
+			b.add(v);
+		}
+		for (int i = 0; i <= 100; i++) {
+			assertEquals(a.getQuantile(i / 100d), b.getQuantile(i / 100d));
+		}
+	}
+
+	@Test
+	void copiesIndependently() {
+		final QuantileSketch sketch = new QuantileSketch(K);
+		for (int i = 0; i < 10; i++) {
+			sketch.add(i);
+		}
+		final QuantileSketch copy = sketch.copy();
+		sketch.add(100);
+		assertEquals(10, copy.getCount());
+		assertEquals(9d, copy.getQuantile(1));
+		assertEquals(100d, sketch.getQuantile(1));
+	}
+
+	@Test
+	void handlesNoValues() {
+		final QuantileSketch sketch = new QuantileSketch(K);
+		assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+		assertThrows(IllegalArgumentException.class, () -> sketch.getQuantile(1.5));
+		assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(2));
+	}
+
+	/**
+	 * @return the smallest value such that at least q of the values are lower or equal
+	 */
+	private static double exact(final double[] sorted, final double q) {
+		final int rank = (int) Math.max(1, Math.ceil(q * sorted.length));
+		return sorted[rank - 1];
+	}
+
+	/**
+	 * Asserts the rank error of a sketch of the values 0..n-1, the rank of a value v is v + 1
+	 */
+	private static void assertRankError(final QuantileSketch sketch, final int n, final double epsilon) {
+		for (int i = 1; i < 1000; i++) {
+			final double q = i / 1000d;
+			final double rank = (sketch.getQuantile(q) + 1) / n;
+			assertEquals(q, rank, epsilon, "q=" + q);
+		}
+	}
+
+	private static double[] range(final int n) {
+		final double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		return values;
+	}
+
+	private static double[] shuffled(final int n, final Random random) {
+		final double[] values = range(n);
+		for (int i = n - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final double v = values[i];
+			values[i] = values[j];
+			values[j] = v;
+		}
+		return values;
+	}
+}
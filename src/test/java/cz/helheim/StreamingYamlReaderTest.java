@@ -0,0 +1,92 @@
+package cz.helheim;
+
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link StreamingYamlReader} reads the same records as {@link Yaml#load(String)} of the whole file
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class StreamingYamlReaderTest {
+	private static final Set<String> KEYS = Set.of("lore", "Id", "Health", "Equipment");
+
+	@Test
+	void readsLikeYamlLoad() {
+		final List<String> documents = List.of(
+				"sword:\n  Id: 0x1F\n  Health: 1.5e3\n  lore: [a, 'b', \"c\"]\n  other: {x: [1, 2]}\n"
+						+ "bow: {Id: ~, Health: yes, Display: Bow}\n",
+				// a record as the base of others, the mapping itself wins, then the earlier merged mapping
+				"base: &base {lore: [a, b], Id: 5, other: x}\n"
+						+ "sword: {Id: 7, <<: *base, Health: 2}\n"
+						+ "b1: &b1 {Id: 1}\nb2: &b2 {Id: 2, Health: 5}\n"
+						+ "bow: {Health: 9, <<: [*b1, *b2]}\n",
+				// anchors in skipped properties and in skipped records
+				"a:\n  unused:\n    deep: &l [x, y]\n    num: &n 4\n  lore: *l\n  Id: *n\n"
+						+ "? [1, 2]\n: &m {lore: [z], skipped: &s {Health: 3}}\n"
+						+ "b: {<<: [*m, *s]}\n"
+						+ "c: &seq [1, 2]\nd: {lore: *seq}\n",
+				// merge keys inside a kept property, nested merges and an inline merged mapping
+				"mob:\n  Equipment:\n    <<: {hand: 1, head: 2}\n    head: 3\n"
+						+ "deep: {<<: {<<: {Id: 1}, Health: 2}, Health: 4}\n",
+				// a whole record as an alias, and a quoted key that is not a merge key
+				"x: &x {Id: 3, junk: 1}\ny: *x\nz: {'<<': {Id: 9}, Id: 8}\n",
+				"scalar: 1\nlist: [1, 2]\n~: {Id: 1}\nempty: {}\n");
+		for (String yaml : documents) {
+			final Map<String, Map<String, Object>> actual = StreamingYamlReader.read(new StringReader(yaml), KEYS);
+			// the string form compares the order of the properties, too
+			assertEquals(load(yaml).toString(), actual.toString(), yaml);
+			assertEquals(load(yaml), actual, yaml);
+		}
+	}
+
+	@Test
+	void passesTheRecordsInOrder() {
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		StreamingYamlReader.read(new StringReader("base: &b {Id: 1}\nitem: {<<: *b}\n"), KEYS, records::put);
+		assertEquals(List.of("base", "item"), List.copyOf(records.keySet()));
+		assertEquals(Map.of("Id", 1), records.get("item"));
+	}
+
+	@Test
+	void rejectsWhatYamlLoadRejects() {
+		for (String yaml : List.of("r: {<<: 5}\n", "r: {<<: [{Id: 1}, 2]}\n", "r: {Id: *missing}\n")) {
+			assertThrows(YAMLException.class, () -> new Yaml().load(yaml), yaml);
+			assertThrows(YAMLException.class, () -> StreamingYamlReader.read(new StringReader(yaml), KEYS), yaml);
+		}
+	}
+
+	/**
+	 * @return the records as the whole file loaded by {@link Yaml#load(String)}, with only the kept properties
+	 */
+	private static Map<String, Map<String, Object>> load(final String yaml) {
+		final Map<Object, Object> document = new Yaml().load(yaml);
+		final Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+		document.forEach((id, value) -> {
+			if (id == null || id instanceof Collection || id instanceof Map || !(value instanceof Map)) {
+				return;
+			}
+			final Map<String, Object> record = new LinkedHashMap<>();
+			((Map<?, ?>) value).forEach((key, v) -> {
+				if (KEYS.contains(key)) {
+					record.put((String) key, v);
+				}
+			});
+			records.put(String.valueOf(id), record);
+		});
+		return records;
+	}
+}
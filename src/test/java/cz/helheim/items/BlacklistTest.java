@@ -0,0 +1,142 @@
+package cz.helheim.items;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link Blacklist} filters the same items as the original check, an item was filtered if its lower
+ * case ID contained any lower case blacklist entry
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class BlacklistTest {
+	private static final List<String> IDS = List.of("sword_of_fire", "SWORD_OF_FIRE", "Sword", "neck_1", "necklace",
+			"frag_exp", "hul_helm", "Šavle", "šavle", "ŠAVLE_Ř", "meč_řádu", "MEČ", "aaab", "abab", "ababc", "", "a",
+			"test_ring", "Test_ring", "ring_of_test", "x_test_", "Épée", "épée");
+
+	@Test
+	void filtersLikeTheOriginalCheck() {
+		final List<List<String>> blacklists = List.of(
+				List.of("neck", "frag", "exp", "hul"),
+				// overlapping patterns, one is a suffix or a part of another
+				List.of("ab", "bab", "abc", "b"),
+				List.of("aab", "ab"),
+				List.of("sword_of", "of_fire", "word"),
+				// case and diacritics
+				List.of("š", "Ř", "MEČ", "ÉPÉE"),
+				List.of("SAVLE"),
+				List.of(""),
+				List.of());
+		for (List<String> blacklist : blacklists) {
+			final Blacklist filter = new Blacklist(blacklist, List.of(), List.of());
+			for (String id : IDS) {
+				assertEquals(original(id, blacklist), filter.isFiltered(id), blacklist + " " + id);
+			}
+		}
+	}
+
+	@Test
+	void filtersRandomIdsLikeTheOriginalCheck() {
+		final Random random = new Random(9);
+		final char[] alphabet = {'a', 'b', 'A', 'B', 'š', 'Š', 'é', 'É', '_'};
+		for (int round = 0; round < 200; round++) {
+			final List<String> blacklist = new ArrayList<>();
+			for (int i = random.nextInt(5); i >= 0; i--) {
+				blacklist.add(randomString(random, alphabet, 1 + random.nextInt(3)));
+			}
+			final Blacklist filter = new Blacklist(blacklist, List.of(), List.of());
+			for (int i = 0; i < 50; i++) {
+				final String id = randomString(random, alphabet, random.nextInt(10));
+				assertEquals(original(id, blacklist), filter.isFiltered(id), blacklist + " " + id);
+			}
+		}
+	}
+
+	@Test
+	void matchesPrefixesCaseSensitively() {
+		final Collection<String> prefixes = List.of("test_", "Š", "ab");
+		final Blacklist filter = new Blacklist(List.of(), prefixes, List.of());
+		for (String id : IDS) {
+			final boolean expected = prefixes.stream().anyMatch(id::startsWith);
+			assertEquals(expected, filter.isFiltered(id), id);
+		}
+		// a prefix is not a part
+		assertFalse(filter.isFiltered("x_test_"));
+		assertFalse(filter.isFiltered("Test_ring"));
+		assertFalse(filter.isFiltered("šavle"));
+		assertTrue(filter.isFiltered("Šavle"));
+
+		assertTrue(new Blacklist(List.of(), List.of(""), List.of()).isFiltered("anything"));
+		assertFalse(new Blacklist(List.of(), List.of("test_ring_long"), List.of()).isFiltered("test_ring"));
+	}
+
+	@Test
+	void keepsWhitelistedItems() {
+		final Collection<String> blacklist = List.of("ring", "Š");
+		final Collection<String> prefixes = List.of("test_");
+		final Collection<String> whitelist = List.of("OF_", "š_x");
+		final Blacklist filter = new Blacklist(blacklist, prefixes, whitelist);
+		for (String id : IDS) {
+			final boolean expected = (original(id, blacklist) || prefixes.stream().anyMatch(id::startsWith))
+					&& !original(id, whitelist);
+			assertEquals(expected, filter.isFiltered(id), id);
+		}
+		assertFalse(filter.isFiltered("ring_of_test"));
+		assertTrue(filter.isFiltered("test_ring"));
+		assertFalse(filter.isFiltered("test_Š_X"));
+	}
+
+	@Test
+	void readsTheConfig() {
+		final Map<String, Object> config = new LinkedHashMap<>();
+		config.put("blacklist", Arrays.asList("neck", null, 42));
+		config.put("prefix", "not a list");
+		final Blacklist filter = Blacklist.of(config);
+		assertTrue(filter.isFiltered("NECK_1"));
+		assertTrue(filter.isFiltered("ring_42"));
+		assertFalse(filter.isFiltered("ring"));
+		assertFalse(Blacklist.of(Collections.emptyMap()).isFiltered("neck"));
+	}
+
+	/**
+	 * The case is folded per char, not per string, so the few chars whose lower case is not their own lower case
+	 * of the upper case match more than with the original check, e.g. the long s
+	 */
+	@Test
+	void foldsCasePerChar() {
+		final Blacklist filter = new Blacklist(List.of("sword"), List.of(), List.of());
+		assertFalse(original("ſword", List.of("sword")));
+		assertTrue(filter.isFiltered("ſword"));
+	}
+
+	private static boolean original(final String itemId, final Collection<String> blacklist) {
+		for (String s : blacklist) {
+			if (itemId.toLowerCase().contains(s.toLowerCase())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String randomString(final Random random, final char[] alphabet, final int length) {
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = alphabet[random.nextInt(alphabet.length)];
+		}
+		return new String(chars);
+	}
+}
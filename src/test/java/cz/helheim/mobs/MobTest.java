@@ -0,0 +1,55 @@
+package cz.helheim.mobs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the cached mob weight follows the weights of the items the mob wears
+ *
+ * @author Jakub Šmrha
+ * @version 1.0
+ * @since 1.0
+ */
+class MobTest {
+
+	@Test
+	void weighsHealthDamageAndEquipment() {
+		final MobItem sword = new MobItem("sword", 267, 2d, List.of(new Enchantment("sharp", 3, 1.5d)));
+		final Mob mob = new Mob("zombie", "&8[&4Lv. 5&8]&c Zombie", 20, 4, List.of(sword, sword));
+		assertEquals(5, mob.getLvl());
+		assertEquals(20 + 4 + 2 * (2d + 3 * 1.5d), mob.getWeight());
+	}
+
+	@Test
+	void followsTheSharedItems() {
+		final EquipmentIndex index = new EquipmentIndex();
+		final MobItem sword = new MobItem("sword", 267, 2d, List.of());
+		final MobItem helmet = new MobItem("helmet", 302, 1d, List.of());
+		final int s = index.add(sword);
+		final int h = index.add(helmet);
+		final Mob zombie = new Mob("zombie", "&8[&4Lv. 5&8]&c Zombie", 20, 4, index, new int[]{s, h});
+		final Mob skeleton = new Mob("skeleton", "&8[&4Lv. 7&8]&c Skeleton", 10, 6, index, new int[]{s});
+		assertEquals(27d, zombie.getWeight());
+		assertEquals(18d, skeleton.getWeight());
+
+		sword.setWeight(5d);
+		assertEquals(30d, zombie.getWeight());
+		assertEquals(21d, skeleton.getWeight());
+
+		helmet.setEnchantments(List.of(new Enchantment("prot", 2, 1d)));
+		assertEquals(32d, zombie.getWeight());
+		assertEquals(21d, skeleton.getWeight());
+	}
+
+	@Test
+	void setsTheEquipment() {
+		final Mob mob = new Mob("zombie", "&8[&4Lv. 5&8]&c Zombie", 20, 4, List.of());
+		assertEquals(24d, mob.getWeight());
+		mob.setEquipment(List.of(new MobItem("sword", 267, 2d, List.of())));
+		assertEquals(26d, mob.getWeight());
+		assertEquals(1, mob.getEquipment().size());
+	}
+}